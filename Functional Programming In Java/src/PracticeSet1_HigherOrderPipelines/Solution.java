@@ -1,7 +1,25 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.*;
 import java.util.stream.*;
 
@@ -19,6 +37,179 @@ public class Solution {
         return result;
     }
 
+    // Per-stage figures reported by withInstrumentation; nanos/allocatedBytes are extrapolated when sampling
+    public record StageReport(String stage, long in, long out, long nanos, long allocatedBytes) {}
+
+    // Instrumented variant of withLogging: each named stage counts elements in/out and measures the time and
+    // per-thread allocated bytes spent in its own function. Only every sampleEvery-th element (>= 1) is timed
+    // (counts stay exact), which keeps the overhead low enough to leave on. Chunk and terminal stages are
+    // timed per batch / per run and include pulling their input through the upstream stages.
+    public static <T, R> R withInstrumentation(Stream<T> stream, int sampleEvery, Function<Instrumented<T>, R> pipeline) {
+        if (sampleEvery < 1) throw new IllegalArgumentException("sampleEvery must be >= 1");
+        List<StageProbe> probes = Collections.synchronizedList(new ArrayList<>());
+        R result = pipeline.apply(new Instrumented<>(stream, probes, sampleEvery));
+        System.out.println("[withInstrumentation] result -> " + result);
+        for (StageProbe probe : probes) System.out.println("[withInstrumentation]   " + probe.report());
+        return result;
+    }
+
+    public static <T, R> R withInstrumentation(Stream<T> stream, Function<Instrumented<T>, R> pipeline) {
+        return withInstrumentation(stream, 1, pipeline);
+    }
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX =
+            ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                    && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled() ? bean : null;
+
+    private static long allocatedBytes() {
+        return THREAD_MX == null ? 0 : THREAD_MX.getCurrentThreadAllocatedBytes();
+    }
+
+    static final class StageProbe {
+        private final String name;
+        private final int sampleEvery;
+        private int countdown; // plain int: a lost update under a parallel stream only shifts which element is timed
+        private final LongAdder in = new LongAdder();
+        private final LongAdder out = new LongAdder();
+        private final LongAdder sampled = new LongAdder();
+        private final LongAdder sampledNanos = new LongAdder();
+        private final LongAdder sampledBytes = new LongAdder();
+
+        StageProbe(String name, int sampleEvery) {
+            this.name = name;
+            this.sampleEvery = sampleEvery;
+        }
+
+        // Counts one element in; true when it falls on the sampling grid and should be timed
+        boolean sampleNext() {
+            in.increment();
+            if (--countdown > 0) return false;
+            countdown = sampleEvery;
+            return true;
+        }
+
+        void record(long startNanos, long startBytes, long elements) {
+            sampledNanos.add(System.nanoTime() - startNanos);
+            sampledBytes.add(allocatedBytes() - startBytes);
+            sampled.add(elements);
+        }
+
+        StageReport report() {
+            long n = in.sum(), samples = sampled.sum();
+            double scale = samples == 0 ? 0 : (double) n / samples;
+            return new StageReport(name, n, out.sum(), Math.round(sampledNanos.sum() * scale), Math.round(sampledBytes.sum() * scale));
+        }
+    }
+
+    public static final class Instrumented<T> {
+        private final Stream<T> stream;
+        private final List<StageProbe> probes;
+        private final int sampleEvery;
+
+        Instrumented(Stream<T> stream, List<StageProbe> probes, int sampleEvery) {
+            this.stream = stream;
+            this.probes = probes;
+            this.sampleEvery = sampleEvery;
+        }
+
+        private StageProbe probe(String name) {
+            StageProbe probe = new StageProbe(name, sampleEvery);
+            probes.add(probe);
+            return probe;
+        }
+
+        public Instrumented<T> filter(String name, Predicate<? super T> predicate) {
+            StageProbe probe = probe(name);
+            return next(stream.filter(t -> {
+                boolean keep;
+                if (!probe.sampleNext()) {
+                    keep = predicate.test(t);
+                } else {
+                    long bytes = allocatedBytes(), start = System.nanoTime();
+                    keep = predicate.test(t);
+                    probe.record(start, bytes, 1);
+                }
+                if (keep) probe.out.increment();
+                return keep;
+            }));
+        }
+
+        public <R> Instrumented<R> map(String name, Function<? super T, ? extends R> mapper) {
+            StageProbe probe = probe(name);
+            return next(stream.map(t -> {
+                R r;
+                if (!probe.sampleNext()) {
+                    r = mapper.apply(t);
+                } else {
+                    long bytes = allocatedBytes(), start = System.nanoTime();
+                    r = mapper.apply(t);
+                    probe.record(start, bytes, 1);
+                }
+                probe.out.increment();
+                return r;
+            }));
+        }
+
+        public Instrumented<List<T>> chunk(String name, int size) {
+            StageProbe probe = probe(name);
+            Stream<T> counted = stream.peek(t -> probe.in.increment());
+            Stream<List<T>> batches = Solution.chunk(counted, size);
+            return next(StreamSupport.stream(new TimedBatches<>(batches.spliterator(), probe), batches.isParallel())
+                    .onClose(batches::close));
+        }
+
+        // Terminal stage: time and allocation are inclusive of every upstream stage pulled by it
+        public <R> R terminal(String name, Function<Stream<T>, R> op) {
+            StageProbe probe = probe(name);
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            R result = op.apply(stream.peek(t -> probe.in.increment()));
+            probe.record(start, bytes, probe.in.sum());
+            probe.out.increment();
+            return result;
+        }
+
+        private <R> Instrumented<R> next(Stream<R> s) {
+            return new Instrumented<>(s, probes, sampleEvery);
+        }
+    }
+
+    // Times every batch a chunk stage emits (inclusive of pulling its input from upstream), not the downstream work
+    static final class TimedBatches<T> implements Spliterator<List<T>> {
+        private final Spliterator<List<T>> source;
+        private final StageProbe probe;
+        private List<T> batch;
+
+        TimedBatches(Spliterator<List<T>> source, StageProbe probe) {
+            this.source = source;
+            this.probe = probe;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super List<T>> action) {
+            long bytes = allocatedBytes(), start = System.nanoTime();
+            if (!source.tryAdvance(b -> batch = b)) return false;
+            probe.record(start, bytes, batch.size());
+            probe.out.increment();
+            List<T> b = batch;
+            batch = null;
+            action.accept(b);
+            return true;
+        }
+
+        @Override
+        public Spliterator<List<T>> trySplit() {
+            Spliterator<List<T>> prefix = source.trySplit();
+            return prefix == null ? null : new TimedBatches<>(prefix, probe);
+        }
+
+        @Override
+        public long estimateSize() { return source.estimateSize(); }
+
+        @Override
+        public int characteristics() { return source.characteristics(); }
+    }
+
     // Measure a Supplier and return result plus duration
     public static <R> TimedResult<R> timed(Supplier<R> supplier) {
         Instant start = Instant.now();
@@ -27,32 +218,1417 @@ public class Solution {
         return new TimedResult<>(result, duration);
     }
 
-    // Chunk a stream into batches of given size
+    // Statistics of a benchmark run, all in nanoseconds per invocation
+    public record BenchmarkResult(int iterations, double meanNanos, double stddevNanos, long p50Nanos, long p99Nanos, long p999Nanos) {}
+
+    // Sink for benchmark results: the volatile write keeps the JIT from proving the work unused and eliminating it
+    public static final class Blackhole {
+        private volatile Object sink;
+
+        public void consume(Object value) {
+            sink = value;
+        }
+    }
+
+    // Measurement mode for timed(): warmup iterations let the JIT compile the supplier, then every measured
+    // iteration is timed on System.nanoTime and its result is fed to a Blackhole.
+    public static <R> BenchmarkResult benchmark(Supplier<R> supplier, int warmupIterations, int measurementIterations) {
+        if (measurementIterations < 1) throw new IllegalArgumentException("measurementIterations must be >= 1");
+        Blackhole blackhole = new Blackhole();
+        for (int i = 0; i < warmupIterations; i++) blackhole.consume(supplier.get());
+        long[] samples = new long[measurementIterations];
+        for (int i = 0; i < measurementIterations; i++) {
+            long start = System.nanoTime();
+            R result = supplier.get();
+            samples[i] = System.nanoTime() - start;
+            blackhole.consume(result);
+        }
+        double mean = 0, m2 = 0; // Welford: numerically stable single pass
+        for (int i = 0; i < samples.length; i++) {
+            double delta = samples[i] - mean;
+            mean += delta / (i + 1);
+            m2 += delta * (samples[i] - mean);
+        }
+        double stddev = samples.length > 1 ? Math.sqrt(m2 / (samples.length - 1)) : 0;
+        Arrays.sort(samples);
+        return new BenchmarkResult(samples.length, mean, stddev,
+                percentile(samples, 50), percentile(samples, 99), percentile(samples, 99.9));
+    }
+
+    // Nearest-rank percentile over sorted samples
+    private static long percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    // Chunk a stream into batches of given size. Lazy: batches are pulled on demand, so infinite
+    // streams work in constant memory, and SIZED sources still split for parallel pipelines.
     public static <T> Stream<List<T>> chunk(Stream<T> stream, int size) {
-        Iterator<T> it = stream.iterator();
-        List<List<T>> chunks = new ArrayList<>();
-        while (it.hasNext()) {
+        if (size < 1) throw new IllegalArgumentException("size must be >= 1");
+        return StreamSupport.stream(new ChunkSpliterator<>(stream.spliterator(), size), stream.isParallel())
+                .onClose(stream::close);
+    }
+
+    // Spliterator emitting fixed-size batches of an underlying spliterator.
+    // Splitting a SUBSIZED source at an arbitrary point would cut a batch in two, so the prefix borrows the
+    // missing head elements of the suffix ("carry") to complete its last batch; batches stay identical to a
+    // sequential run. Unsized sources split by buffering a growing number of batches, like Spliterators does.
+    static final class ChunkSpliterator<T> implements Spliterator<List<T>> {
+        private static final int MAX_BATCHES_PER_SPLIT = 1 << 10;
+        private final Spliterator<T> source;
+        private final int size;
+        private List<T> carry; // elements appended after source is exhausted
+        private int splitBatches;
+
+        ChunkSpliterator(Spliterator<T> source, int size) {
+            this(source, size, List.of());
+        }
+
+        private ChunkSpliterator(Spliterator<T> source, int size, List<T> carry) {
+            this.source = source;
+            this.size = size;
+            this.carry = carry;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super List<T>> action) {
             List<T> batch = new ArrayList<>(size);
-            for (int i = 0; i < size && it.hasNext(); i++) {
-                batch.add(it.next());
+            while (batch.size() < size && source.tryAdvance(batch::add)) { /* fill */ }
+            if (batch.size() < size && !carry.isEmpty()) {
+                int take = Math.min(size - batch.size(), carry.size());
+                batch.addAll(carry.subList(0, take));
+                carry = carry.subList(take, carry.size());
+            }
+            if (batch.isEmpty()) return false;
+            action.accept(batch);
+            return true;
+        }
+
+        @Override
+        public Spliterator<List<T>> trySplit() {
+            if (!source.hasCharacteristics(SUBSIZED)) return splitByBuffering();
+            Spliterator<T> prefix = source.trySplit();
+            if (prefix == null) return null;
+            int remainder = (int) (prefix.getExactSizeIfKnown() % size);
+            List<T> borrowed = new ArrayList<>();
+            if (remainder != 0) {
+                while (borrowed.size() < size - remainder && source.tryAdvance(borrowed::add)) { /* borrow */ }
+                if (borrowed.size() < size - remainder) {
+                    // source ran dry: our own carry comes next in order, so all of it moves to the prefix
+                    borrowed.addAll(carry);
+                    carry = List.of();
+                }
             }
-            chunks.add(batch);
+            return new ChunkSpliterator<>(prefix, size, borrowed);
+        }
+
+        private Spliterator<List<T>> splitByBuffering() {
+            int batches = Math.min(MAX_BATCHES_PER_SPLIT, ++splitBatches);
+            List<List<T>> buffered = new ArrayList<>(batches);
+            while (buffered.size() < batches && tryAdvance(buffered::add)) { /* buffer */ }
+            if (buffered.isEmpty()) return null;
+            return Spliterators.spliterator(buffered, characteristics());
+        }
+
+        @Override
+        public long estimateSize() {
+            long n = source.estimateSize();
+            if (n == Long.MAX_VALUE) return n;
+            return (n + carry.size() + size - 1) / size;
+        }
+
+        @Override
+        public int characteristics() {
+            return (source.characteristics() & (ORDERED | SIZED | SUBSIZED | IMMUTABLE | CONCURRENT)) | NONNULL;
+        }
+    }
+
+    // Recycles batch buffers so a busy batcher does not allocate a fresh ArrayList per batch
+    static final class BatchBufferPool<T> {
+        private final ArrayDeque<ArrayList<T>> free = new ArrayDeque<>();
+        private final int capacity;
+        private final int maxPooled;
+
+        BatchBufferPool(int capacity, int maxPooled) {
+            this.capacity = capacity;
+            this.maxPooled = maxPooled;
+        }
+
+        synchronized ArrayList<T> acquire() {
+            ArrayList<T> buffer = free.pollFirst();
+            return buffer != null ? buffer : new ArrayList<>(capacity);
+        }
+
+        synchronized void release(ArrayList<T> buffer) {
+            buffer.clear();
+            if (free.size() < maxPooled) free.addFirst(buffer);
+        }
+    }
+
+    // Push-based batching stage: a batch is flushed when it reaches maxSize elements or maxDelay after its
+    // first element arrived, whichever comes first, so trickling sources still see bounded latency.
+    // The sink runs on the flushing thread (producer or deadline scheduler) while the batcher's lock is held,
+    // so producers block for as long as the sink runs. The list it receives is pooled: it is only valid during
+    // the call, so copy it if it must outlive the sink. A sink failure on a deadline flush has no caller to
+    // reach; the first one is kept and rethrown (wrapped) from the next offer(), flush() and close().
+    public static final class TimedBatcher<T> implements AutoCloseable {
+        private final int maxSize;
+        private final long maxDelayNanos;
+        private final Consumer<List<T>> sink;
+        private final BatchBufferPool<T> pool;
+        private final ScheduledThreadPoolExecutor scheduler;
+        private ArrayList<T> current;
+        private ScheduledFuture<?> deadline;
+        private long generation;
+        private boolean closed;
+        private Throwable failure; // first sink failure on a deadline flush
+
+        public TimedBatcher(int maxSize, Duration maxDelay, Consumer<List<T>> sink) {
+            if (maxSize < 1) throw new IllegalArgumentException("maxSize must be >= 1");
+            this.maxSize = maxSize;
+            this.maxDelayNanos = maxDelay.toNanos();
+            this.sink = sink;
+            this.pool = new BatchBufferPool<>(maxSize, 4);
+            this.scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, "timed-batcher-deadline");
+                t.setDaemon(true);
+                return t;
+            });
+            this.scheduler.setRemoveOnCancelPolicy(true);
+        }
+
+        public synchronized void offer(T element) {
+            if (closed) throw new IllegalStateException("batcher closed");
+            rethrowFailure();
+            if (current == null) {
+                current = pool.acquire();
+                long gen = ++generation;
+                deadline = scheduler.schedule(() -> flushIfGeneration(gen), maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+            current.add(element);
+            if (current.size() >= maxSize) emit();
+        }
+
+        private synchronized void flushIfGeneration(long gen) {
+            if (gen != generation) return;
+            try {
+                emit();
+            } catch (Throwable t) {
+                if (failure == null) failure = t;
+            }
+        }
+
+        // Emits the pending batch, if any, regardless of size or deadline
+        public synchronized void flush() {
+            rethrowFailure();
+            emit();
+        }
+
+        private void emit() {
+            if (current == null) return;
+            ArrayList<T> batch = current;
+            current = null;
+            generation++;
+            deadline.cancel(false);
+            try {
+                sink.accept(batch);
+            } finally {
+                pool.release(batch);
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) return;
+            try {
+                emit();
+            } finally {
+                closed = true;
+                scheduler.shutdownNow();
+            }
+            rethrowFailure();
+        }
+
+        private void rethrowFailure() {
+            if (failure != null) throw new IllegalStateException("deadline flush failed", failure);
         }
-        return chunks.stream();
     }
 
     // Frequency map with stop-word filtering; thread-safe for parallel streams
     public static Map<String, Long> wordFreq(List<String> sentences, Set<String> stopWords, boolean parallel) {
+        return wordFreq(sentences, stopWords::contains, parallel);
+    }
+
+    // Same, with stop-words given as any membership test (e.g. a BloomFilter predicate for huge exclusion sets)
+    public static Map<String, Long> wordFreq(List<String> sentences, Predicate<String> isStopWord, boolean parallel) {
         Stream<String> stream = sentences.stream();
         if (parallel) stream = stream.parallel();
 
         return stream
                 .flatMap(s -> Arrays.stream(s.toLowerCase().split("\\W+")))
                 .filter(w -> !w.isEmpty())
-                .filter(w -> !stopWords.contains(w))
+                .filter(isStopWord.negate())
                 .collect(Collectors.groupingBy(Function.identity(), parallel ? ConcurrentHashMap::new : HashMap::new, Collectors.counting()));
     }
 
+    // Blocked Bloom filter: every element maps to one 512-bit block (8 longs, the size of a cache line) and sets
+    // its k bits inside it, so a lookup costs one or two cache-line reads instead of k random ones. The JVM does
+    // not let us align a long[] to 64 bytes, hence "one or two". Blocking costs accuracy (unevenly loaded
+    // blocks), so sizing adds bits until the blocked error rate meets the target. Same-shaped filters merge by OR.
+    public static final class BloomFilter<T> {
+        private static final int BLOCK_LONGS = 8;
+        private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+        private final long[] bits;
+        private final int blocks;
+        private final int k;
+
+        private BloomFilter(int blocks, int k) {
+            this.bits = new long[blocks * BLOCK_LONGS];
+            this.blocks = blocks;
+            this.k = k;
+        }
+
+        public static <T> BloomFilter<T> create(long expectedInsertions, double falsePositiveRate) {
+            if (expectedInsertions <= 0) throw new IllegalArgumentException("expectedInsertions must be > 0");
+            if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) throw new IllegalArgumentException("falsePositiveRate must be in (0, 1)");
+            double ln2 = Math.log(2);
+            int k = (int) Math.max(1, Math.min(16, Math.round(-Math.log(falsePositiveRate) / ln2)));
+            double bitsPerElement = -Math.log(falsePositiveRate) / (ln2 * ln2);
+            while (blockedFalsePositiveRate(bitsPerElement, k) > falsePositiveRate) bitsPerElement *= 1.05;
+            long totalBits = (long) Math.ceil(expectedInsertions * bitsPerElement);
+            long blocks = Math.max(1, (totalBits + 511) / 512);
+            if (blocks * BLOCK_LONGS > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("filter too large: " + totalBits + " bits");
+            return new BloomFilter<>((int) blocks, k);
+        }
+
+        // Block loads are Poisson(512 / bitsPerElement); overfull blocks dominate the error at low rates
+        static double blockedFalsePositiveRate(double bitsPerElement, int k) {
+            double lambda = 512 / bitsPerElement;
+            double term = Math.exp(-lambda), rate = 0;
+            for (int load = 0; load <= lambda + 10 * Math.sqrt(lambda) + 20; load++) {
+                if (load > 0) term *= lambda / load;
+                rate += term * Math.pow(1 - Math.pow(1 - 1.0 / 512, (double) k * load), k);
+            }
+            return rate;
+        }
+
+        // Same hash as HyperLogLog.hash64 in Stream In Java/src/Ch1_IntroductionToStreamInJava.java
+        static long hash64(Object o) {
+            long h;
+            if (o instanceof CharSequence cs) {
+                h = 0xCBF29CE484222325L;
+                for (int i = 0; i < cs.length(); i++) h = (h ^ cs.charAt(i)) * 0x100000001B3L;
+            } else {
+                h = Objects.hashCode(o);
+            }
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+            h *= 0xC4CEB9FE1A85EC53L;
+            return h ^ (h >>> 33);
+        }
+
+        public void put(T value) {
+            insert(value, false);
+        }
+
+        // Thread-safe put: bits are OR-ed in atomically (skipped when already set), so threads can share one filter
+        public void putConcurrent(T value) {
+            insert(value, true);
+        }
+
+        // High 32 bits pick the block (multiply-shift, no modulo); a 64-bit LCG seeded with the whole hash yields
+        // the k bit positions inside it (top 9 bits per step; 32-bit double hashing overshot the target at low rates)
+        private void insert(T value, boolean atomic) {
+            long h = hash64(value);
+            int base = (int) (((h >>> 32) * blocks) >>> 32) * BLOCK_LONGS;
+            long x = h;
+            for (int i = 0; i < k; i++) {
+                x = x * 0x5851F42D4C957F2DL + 0x14057B7EF767814FL;
+                int bit = (int) (x >>> 55); // 0..511
+                int word = base + (bit >>> 6);
+                long mask = 1L << bit;
+                if (!atomic) bits[word] |= mask;
+                else if (((long) LONGS.getOpaque(bits, word) & mask) == 0) LONGS.getAndBitwiseOr(bits, word, mask);
+            }
+        }
+
+        public boolean mightContain(T value) {
+            long h = hash64(value);
+            int base = (int) (((h >>> 32) * blocks) >>> 32) * BLOCK_LONGS;
+            long x = h;
+            for (int i = 0; i < k; i++) {
+                x = x * 0x5851F42D4C957F2DL + 0x14057B7EF767814FL;
+                int bit = (int) (x >>> 55);
+                if ((bits[base + (bit >>> 6)] & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        // Lock-free reads only; share it across threads once building is finished
+        public Predicate<T> asPredicate() {
+            return this::mightContain;
+        }
+
+        public BloomFilter<T> merge(BloomFilter<T> other) {
+            if (other.blocks != blocks || other.k != k)
+                throw new IllegalArgumentException("incompatible filters: " + blocks + "/" + k + " vs " + other.blocks + "/" + other.k);
+            for (int i = 0; i < bits.length; i++) bits[i] |= other.bits[i];
+            return this;
+        }
+
+        public long sizeInBytes() { return bits.length * 8L; }
+
+        public int hashFunctions() { return k; }
+    }
+
+    // Builds a BloomFilter from a stream; parallel chunks build same-shaped filters that are OR-merged
+    public static <T> Collector<T, BloomFilter<T>, BloomFilter<T>> toBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        return Collector.of(
+                () -> BloomFilter.create(expectedInsertions, falsePositiveRate),
+                BloomFilter::put,
+                BloomFilter::merge,
+                Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH
+        );
+    }
+
+    // CONCURRENT variant: a parallel build fills one shared filter with atomic ORs instead of allocating a
+    // full-size filter per leaf, which adds up for millions of entries at low false-positive rates
+    public static <T> Collector<T, BloomFilter<T>, BloomFilter<T>> toBloomFilterConcurrent(long expectedInsertions, double falsePositiveRate) {
+        return Collector.of(
+                () -> BloomFilter.create(expectedInsertions, falsePositiveRate),
+                BloomFilter::putConcurrent,
+                BloomFilter::merge,
+                Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH
+        );
+    }
+
+    // Receives one token as a range of a (reused) char buffer plus its precomputed hash
+    @FunctionalInterface
+    interface TokenSink {
+        void accept(char[] buf, int start, int len, int hash);
+    }
+
+    // Hand-written tokenizer equivalent to toLowerCase().split("\\W+"): copies the sentence into a reused
+    // buffer, case-folds it in place and reports runs of [a-z0-9_] without creating Strings. Non-ASCII chars
+    // are delimiters unless they lower-case to ASCII (e.g. KELVIN SIGN -> 'k'), as with String.toLowerCase;
+    // U+0130 lower-cases to "i" + combining dot, so it contributes an 'i' and then ends the token.
+    static final class Tokenizer {
+        private char[] buf = new char[256];
+
+        void tokenize(String sentence, TokenSink sink) {
+            int n = sentence.length();
+            if (buf.length < n) buf = new char[Math.max(n, buf.length * 2)];
+            sentence.getChars(0, n, buf, 0);
+            int start = -1, hash = 0;
+            for (int i = 0; i <= n; i++) {
+                char raw = i < n ? buf[i] : ' ';
+                char c = fold(raw);
+                if (isWordChar(c)) {
+                    buf[i] = c;
+                    if (start < 0) { start = i; hash = 0; }
+                    hash = 31 * hash + c;
+                    if (raw != '\u0130') continue;
+                    sink.accept(buf, start, i + 1 - start, mix(hash));
+                    start = -1;
+                } else if (start >= 0) {
+                    sink.accept(buf, start, i - start, mix(hash));
+                    start = -1;
+                }
+            }
+        }
+
+        private static char fold(char c) {
+            if (c < 128) return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+            return Character.toLowerCase(c);
+        }
+
+        private static boolean isWordChar(char c) {
+            return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_';
+        }
+
+        // murmur3 finalizer: spreads the polynomial hash so linear probing stays short
+        static int mix(int h) {
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    // Open-addressing word -> count table. Keys live in one char arena (offset/length per slot), so counting
+    // an already-seen word only hashes and compares chars: no String, no boxed Long, no map node.
+    static final class WordTable {
+        private int[] hashes;
+        private int[] offsets;
+        private int[] lengths; // 0 marks an empty slot (tokens are never empty)
+        private long[] counts;
+        private char[] arena = new char[1024];
+        private int arenaUsed;
+        private int size;
+
+        WordTable(int expectedWords) {
+            int cap = Integer.highestOneBit(Math.max(16, expectedWords * 2 - 1)) << 1;
+            hashes = new int[cap];
+            offsets = new int[cap];
+            lengths = new int[cap];
+            counts = new long[cap];
+        }
+
+        void add(char[] buf, int start, int len, int hash, long delta) {
+            int mask = lengths.length - 1;
+            int slot = hash & mask;
+            while (lengths[slot] != 0) {
+                if (hashes[slot] == hash && lengths[slot] == len
+                        && Arrays.equals(arena, offsets[slot], offsets[slot] + len, buf, start, start + len)) {
+                    counts[slot] += delta;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (arenaUsed + len > arena.length) arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaUsed + len));
+            System.arraycopy(buf, start, arena, arenaUsed, len);
+            hashes[slot] = hash;
+            offsets[slot] = arenaUsed;
+            lengths[slot] = len;
+            counts[slot] = delta;
+            arenaUsed += len;
+            if (++size * 2 > lengths.length) rehash();
+        }
+
+        boolean contains(char[] buf, int start, int len, int hash) {
+            return get(buf, start, len, hash) >= 0;
+        }
+
+        // Stored count (or value) for the word, -1 when absent
+        long get(char[] buf, int start, int len, int hash) {
+            int mask = lengths.length - 1;
+            for (int slot = hash & mask; lengths[slot] != 0; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash && lengths[slot] == len
+                        && Arrays.equals(arena, offsets[slot], offsets[slot] + len, buf, start, start + len)) return counts[slot];
+            }
+            return -1;
+        }
+
+        private void rehash() {
+            int[] oldHashes = hashes, oldOffsets = offsets, oldLengths = lengths;
+            long[] oldCounts = counts;
+            int cap = oldLengths.length * 2, mask = cap - 1;
+            hashes = new int[cap];
+            offsets = new int[cap];
+            lengths = new int[cap];
+            counts = new long[cap];
+            for (int i = 0; i < oldLengths.length; i++) {
+                if (oldLengths[i] == 0) continue;
+                int slot = oldHashes[i] & mask;
+                while (lengths[slot] != 0) slot = (slot + 1) & mask;
+                hashes[slot] = oldHashes[i];
+                offsets[slot] = oldOffsets[i];
+                lengths[slot] = oldLengths[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+
+        WordTable mergeFrom(WordTable other) {
+            for (int i = 0; i < other.lengths.length; i++) {
+                if (other.lengths[i] != 0) add(other.arena, other.offsets[i], other.lengths[i], other.hashes[i], other.counts[i]);
+            }
+            return this;
+        }
+
+        Map<String, Long> toMap() {
+            Map<String, Long> out = new HashMap<>(size * 2);
+            for (int i = 0; i < lengths.length; i++) {
+                if (lengths[i] != 0) out.put(new String(arena, offsets[i], lengths[i]), counts[i]);
+            }
+            return out;
+        }
+
+        static WordTable of(Collection<String> words) {
+            WordTable table = new WordTable(words.size());
+            for (String w : words) {
+                if (w.isEmpty()) continue;
+                char[] chars = w.toCharArray();
+                table.add(chars, 0, chars.length, hashOf(chars, 0, chars.length), 1);
+            }
+            return table;
+        }
+
+        static int hashOf(char[] buf, int start, int len) {
+            int hash = 0;
+            for (int i = start; i < start + len; i++) hash = 31 * hash + buf[i];
+            return Tokenizer.mix(hash);
+        }
+    }
+
+    // Concurrent dictionary assigning each distinct token a dense int ID (0, 1, 2, ...), so downstream stages
+    // can count into long[] and test stop-words with a BitSet; Strings are only needed to decode at the end.
+    // The shared map is touched once per distinct word per Encoder; repeats resolve in the encoder's local table.
+    public static final class TokenDictionary {
+        private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+        private volatile String[] words = new String[64];
+        private int size; // guarded by this
+
+        public int idOf(String word) {
+            Integer id = ids.get(word);
+            return id != null ? id : register(word);
+        }
+
+        // ID of an already registered word, -1 otherwise
+        public int find(String word) {
+            Integer id = ids.get(word);
+            return id != null ? id : -1;
+        }
+
+        private synchronized int register(String word) {
+            Integer existing = ids.get(word);
+            if (existing != null) return existing;
+            int id = size++;
+            String[] w = words;
+            if (id == w.length) w = Arrays.copyOf(w, w.length * 2);
+            w[id] = word;
+            words = w;
+            ids.put(word, id);
+            return id;
+        }
+
+        public String word(int id) {
+            return words[id];
+        }
+
+        public int size() {
+            return ids.size();
+        }
+
+        public BitSet idsOf(Collection<String> words) {
+            BitSet set = new BitSet();
+            for (String w : words) set.set(idOf(w));
+            return set;
+        }
+
+        public Encoder encoder() {
+            return new Encoder();
+        }
+
+        // Per-worker front end (not thread-safe): tokenizes like wordFreqFast and maps tokens to IDs
+        public final class Encoder {
+            private final Tokenizer tokenizer = new Tokenizer();
+            private final WordTable local = new WordTable(1024);
+
+            public void encode(String sentence, IntConsumer sink) {
+                tokenizer.tokenize(sentence, (buf, start, len, hash) -> {
+                    long id = local.get(buf, start, len, hash);
+                    if (id < 0) {
+                        id = idOf(new String(buf, start, len));
+                        local.add(buf, start, len, hash, id);
+                    }
+                    sink.accept((int) id);
+                });
+            }
+        }
+    }
+
+    // wordFreq over dictionary-encoded tokens: per-worker long[] counts indexed by ID, stop-words as a BitSet
+    public static Map<String, Long> wordFreqEncoded(List<String> sentences, Set<String> stopWords, boolean parallel) {
+        TokenDictionary dict = new TokenDictionary();
+        BitSet stop = dict.idsOf(stopWords);
+        List<List<String>> slices = sentenceSlices(sentences, parallel);
+        long[] counts = (parallel ? slices.parallelStream() : slices.stream())
+                .map(slice -> {
+                    TokenDictionary.Encoder encoder = dict.encoder();
+                    long[][] local = { new long[256] };
+                    for (String sentence : slice) {
+                        encoder.encode(sentence, id -> {
+                            if (stop.get(id)) return;
+                            if (id >= local[0].length) local[0] = Arrays.copyOf(local[0], Math.max(id + 1, local[0].length * 2));
+                            local[0][id]++;
+                        });
+                    }
+                    return local[0];
+                })
+                .reduce(new long[0], (a, b) -> {
+                    long[] sum = a.length >= b.length ? a.clone() : b.clone();
+                    long[] other = a.length >= b.length ? b : a;
+                    for (int id = 0; id < other.length; id++) sum[id] += other[id];
+                    return sum;
+                });
+        Map<String, Long> out = new HashMap<>();
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) out.put(dict.word(id), counts[id]);
+        }
+        return out;
+    }
+
+    // Same result as wordFreq, computed by the Tokenizer + WordTable engine. Parallel mode gives each
+    // worker a contiguous slice of sentences and its own table, then merges the tables once at the end.
+    public static Map<String, Long> wordFreqFast(List<String> sentences, Set<String> stopWords, boolean parallel) {
+        WordTable stop = WordTable.of(stopWords);
+        List<List<String>> slices = sentenceSlices(sentences, parallel);
+        if (slices.size() == 1) return countSlice(slices.get(0), stop).toMap();
+        return slices.parallelStream()
+                .map(slice -> countSlice(slice, stop))
+                .reduce(WordTable::mergeFrom)
+                .map(WordTable::toMap)
+                .orElseGet(HashMap::new);
+    }
+
+    // Contiguous sentence ranges, one per worker task (about 4 per core when parallel); never empty
+    private static List<List<String>> sentenceSlices(List<String> sentences, boolean parallel) {
+        int slices = parallel ? Math.min(sentences.size(), Runtime.getRuntime().availableProcessors() * 4) : 1;
+        if (slices <= 1) return List.of(sentences);
+        int per = (sentences.size() + slices - 1) / slices;
+        List<List<String>> out = new ArrayList<>(slices);
+        for (int from = 0; from < sentences.size(); from += per) {
+            out.add(sentences.subList(from, Math.min(sentences.size(), from + per)));
+        }
+        return out;
+    }
+
+    private static WordTable countSlice(List<String> sentences, WordTable stop) {
+        WordTable counts = new WordTable(1024);
+        Tokenizer tokenizer = new Tokenizer();
+        TokenSink sink = (buf, start, len, hash) -> {
+            if (!stop.contains(buf, start, len, hash)) counts.add(buf, start, len, hash, 1);
+        };
+        for (String sentence : sentences) tokenizer.tokenize(sentence, sink);
+        return counts;
+    }
+
+    // Estimated count is an upper bound; count - error is a guaranteed lower bound
+    public record HeavyHitter(String word, long count, long error) {}
+
+    public record HeavyHitters(List<HeavyHitter> top, long totalCount, long maxError) {}
+
+    // SpaceSaving summary: at most `capacity` counters held in a min-heap by count. An unseen word replaces
+    // the minimum counter and inherits its count as error, so every estimate overshoots by at most
+    // totalCount / capacity. Summaries of disjoint substreams merge without losing that guarantee.
+    public static final class SpaceSaving {
+        private final int capacity;
+        private final String[] words;
+        private final long[] counts;
+        private final long[] errors;
+        private final HashMap<String, Integer> positions;
+        private int size;
+        private long total;
+
+        public SpaceSaving(int capacity) {
+            if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+            this.capacity = capacity;
+            this.words = new String[capacity];
+            this.counts = new long[capacity];
+            this.errors = new long[capacity];
+            this.positions = new HashMap<>(capacity * 2);
+        }
+
+        public void offer(String word) {
+            offer(word, 1, 0);
+        }
+
+        private void offer(String word, long count, long error) {
+            total += count;
+            Integer p = positions.get(word);
+            if (p != null) {
+                counts[p] += count;
+                errors[p] += error;
+                siftDown(p);
+            } else if (size < capacity) {
+                place(size, word, count, error);
+                siftUp(size++);
+            } else {
+                positions.remove(words[0]);
+                place(0, word, counts[0] + count, counts[0] + error);
+                siftDown(0);
+            }
+        }
+
+        // Smallest tracked count: the implicit count of any word not in the summary
+        long minCount() {
+            return size < capacity ? 0 : counts[0];
+        }
+
+        public SpaceSaving merge(SpaceSaving other) {
+            long minA = minCount(), minB = other.minCount();
+            Map<String, long[]> union = new HashMap<>((size + other.size) * 2);
+            for (int i = 0; i < size; i++) union.put(words[i], new long[] { counts[i] + minB, errors[i] + minB });
+            for (int i = 0; i < other.size; i++) {
+                long[] e = union.get(other.words[i]);
+                if (e != null) {
+                    e[0] += other.counts[i] - minB;
+                    e[1] += other.errors[i] - minB;
+                } else {
+                    union.put(other.words[i], new long[] { other.counts[i] + minA, other.errors[i] + minA });
+                }
+            }
+            long mergedTotal = total + other.total;
+            positions.clear();
+            size = 0;
+            union.entrySet().stream()
+                    .sorted((x, y) -> Long.compare(y.getValue()[0], x.getValue()[0]))
+                    .limit(capacity)
+                    .forEach(e -> offer(e.getKey(), e.getValue()[0], e.getValue()[1]));
+            total = mergedTotal;
+            return this;
+        }
+
+        public HeavyHitters top(int k) {
+            List<HeavyHitter> top = IntStream.range(0, size)
+                    .mapToObj(i -> new HeavyHitter(words[i], counts[i], errors[i]))
+                    .sorted(Comparator.comparingLong(HeavyHitter::count).reversed())
+                    .limit(k)
+                    .toList();
+            return new HeavyHitters(top, total, total / capacity);
+        }
+
+        private void place(int i, String word, long count, long error) {
+            words[i] = word;
+            counts[i] = count;
+            errors[i] = error;
+            positions.put(word, i);
+        }
+
+        private void swap(int i, int j) {
+            String w = words[i]; words[i] = words[j]; words[j] = w;
+            long c = counts[i]; counts[i] = counts[j]; counts[j] = c;
+            long e = errors[i]; errors[i] = errors[j]; errors[j] = e;
+            positions.put(words[i], i);
+            positions.put(words[j], j);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0 && counts[(i - 1) / 2] > counts[i]) {
+                swap(i, (i - 1) / 2);
+                i = (i - 1) / 2;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int l = 2 * i + 1, r = l + 1, min = i;
+                if (l < size && counts[l] < counts[min]) min = l;
+                if (r < size && counts[r] < counts[min]) min = r;
+                if (min == i) return;
+                swap(i, min);
+                i = min;
+            }
+        }
+    }
+
+    // Top-k words in fixed memory (capacity counters per worker) instead of an exact count per distinct word
+    public static HeavyHitters heavyHitters(List<String> sentences, Set<String> stopWords, int capacity, int k, boolean parallel) {
+        WordTable stop = WordTable.of(stopWords);
+        List<List<String>> slices = sentenceSlices(sentences, parallel);
+        return (parallel ? slices.parallelStream() : slices.stream())
+                .map(slice -> {
+                    SpaceSaving summary = new SpaceSaving(capacity);
+                    Tokenizer tokenizer = new Tokenizer();
+                    TokenSink sink = (buf, start, len, hash) -> {
+                        if (!stop.contains(buf, start, len, hash)) summary.offer(new String(buf, start, len));
+                    };
+                    for (String sentence : slice) tokenizer.tokenize(sentence, sink);
+                    return summary;
+                })
+                .reduce(SpaceSaving::merge)
+                .orElseGet(() -> new SpaceSaving(capacity))
+                .top(k);
+    }
+
+    // Word counts over a sliding window of sentences, bounded by count and/or age. Appending or expiring a
+    // sentence touches only its own tokens: counts live in an int[] by token ID and the ranking is an array of
+    // IDs kept sorted by count. Counts move by +-1, so an update is one swap to the edge of its count block:
+    // O(1) per token and no boxing. IDs are local to the counter; once words that left the window outnumber
+    // the live words and window tokens, the window is re-encoded with a fresh dictionary, so memory follows
+    // the window rather than every word ever seen (amortized O(1) per token).
+    public static final class SlidingWordCounter {
+        private record WindowEntry(long timestampMillis, int[] ids) {}
+
+        private final Set<String> stopWords;
+        private final int maxSentences;
+        private final long maxAgeMillis;
+        private final ArrayDeque<WindowEntry> window = new ArrayDeque<>();
+        private TokenDictionary dict;
+        private TokenDictionary.Encoder encoder;
+        private BitSet stop;
+        private int[] counts;
+        private int[] order;     // IDs by count, highest first
+        private int[] pos;       // pos[id] = index of id in order
+        private int[] blockEnd;  // blockEnd[c] = number of IDs with count >= c, so count c spans [blockEnd[c+1], blockEnd[c])
+        private int known;       // IDs entered into order (IDs are dense)
+        private int live;        // IDs with count > 0
+        private long windowTokens;
+        private final int[] scratch = new int[1];
+        private int[] ids = new int[64];
+
+        public SlidingWordCounter(Set<String> stopWords, int maxSentences, Duration maxAge) {
+            this.stopWords = Set.copyOf(stopWords);
+            this.maxSentences = maxSentences;
+            this.maxAgeMillis = maxAge.toMillis();
+            reset(new TokenDictionary());
+        }
+
+        private void reset(TokenDictionary fresh) {
+            dict = fresh;
+            encoder = fresh.encoder();
+            stop = fresh.idsOf(stopWords);
+            counts = new int[256];
+            order = new int[256];
+            pos = new int[256];
+            blockEnd = new int[16];
+            known = 0;
+            live = 0;
+        }
+
+        public synchronized void append(String sentence, long timestampMillis) {
+            scratch[0] = 0;
+            encoder.encode(sentence, id -> {
+                if (stop.get(id)) return;
+                if (scratch[0] == ids.length) ids = Arrays.copyOf(ids, ids.length * 2);
+                ids[scratch[0]++] = id;
+            });
+            int[] sentenceIds = Arrays.copyOf(ids, scratch[0]);
+            for (int id : sentenceIds) adjust(id, 1);
+            window.addLast(new WindowEntry(timestampMillis, sentenceIds));
+            windowTokens += sentenceIds.length;
+            expire(timestampMillis);
+        }
+
+        public void append(String sentence) {
+            append(sentence, System.currentTimeMillis());
+        }
+
+        // Drops sentences beyond maxSentences or older than maxAge relative to nowMillis
+        public synchronized void expire(long nowMillis) {
+            WindowEntry oldest;
+            while ((oldest = window.peekFirst()) != null
+                    && (window.size() > maxSentences || nowMillis - oldest.timestampMillis() > maxAgeMillis)) {
+                window.pollFirst();
+                for (int id : oldest.ids()) adjust(id, -1);
+                windowTokens -= oldest.ids().length;
+            }
+            long dead = dict.size() - live - stop.cardinality();
+            if (dead > Math.max(live, windowTokens) + 1024) compact();
+        }
+
+        // Re-encode the window with a fresh dictionary holding only stop-words and words still in the window
+        private void compact() {
+            TokenDictionary old = dict;
+            int[] remap = new int[known];
+            Arrays.fill(remap, -1);
+            reset(new TokenDictionary());
+            for (WindowEntry entry : window) {
+                int[] entryIds = entry.ids();
+                for (int i = 0; i < entryIds.length; i++) {
+                    int id = entryIds[i];
+                    if (remap[id] < 0) remap[id] = dict.idOf(old.word(id));
+                    entryIds[i] = remap[id];
+                    adjust(entryIds[i], 1);
+                }
+            }
+        }
+
+        private void adjust(int id, int delta) {
+            while (known <= id) enter(known);
+            int c = counts[id];
+            if (delta > 0) {
+                if (c + 1 >= blockEnd.length) blockEnd = Arrays.copyOf(blockEnd, blockEnd.length * 2);
+                swap(pos[id], blockEnd[c + 1]); // first slot of block c joins block c + 1
+                blockEnd[c + 1]++;
+                if (c == 0) live++;
+            } else {
+                swap(pos[id], blockEnd[c] - 1); // last slot of block c joins block c - 1
+                blockEnd[c]--;
+                if (c == 1) live--;
+            }
+            counts[id] = c + delta;
+        }
+
+        private void enter(int id) {
+            if (id == order.length) {
+                order = Arrays.copyOf(order, id * 2);
+                pos = Arrays.copyOf(pos, id * 2);
+                counts = Arrays.copyOf(counts, id * 2);
+            }
+            order[id] = id;
+            pos[id] = id;
+            blockEnd[0] = ++known;
+        }
+
+        private void swap(int i, int j) {
+            int a = order[i], b = order[j];
+            order[i] = b;
+            pos[b] = i;
+            order[j] = a;
+            pos[a] = j;
+        }
+
+        public synchronized long count(String word) {
+            int id = dict.find(word);
+            return id >= 0 && id < known ? counts[id] : 0;
+        }
+
+        // Ties are listed in no particular order
+        public synchronized List<Map.Entry<String, Long>> top(int k) {
+            List<Map.Entry<String, Long>> out = new ArrayList<>(Math.min(k, live));
+            for (int i = 0; i < Math.min(k, live); i++) {
+                int id = order[i];
+                out.add(Map.entry(dict.word(id), (long) counts[id]));
+            }
+            return out;
+        }
+
+        // Distinct words currently interned (live, expired-but-not-yet-compacted, and stop-words)
+        public synchronized int vocabularySize() {
+            return dict.size();
+        }
+    }
+
+    // Push-based counterpart of the Stream pipelines on java.util.concurrent.Flow. Stages never buffer more
+    // than downstream asked for: map/logging forward demand 1:1, filter re-requests one per dropped element,
+    // chunk requests n * size, and async() holds at most bufferSize elements while it hands off to an executor.
+    // Pipelines are cold: each subscribe() wires a fresh chain of stages to the source.
+    public static final class FlowPipeline<T> {
+        private final Flow.Publisher<T> publisher;
+
+        private FlowPipeline(Flow.Publisher<T> publisher) {
+            this.publisher = publisher;
+        }
+
+        public static <T> FlowPipeline<T> from(Flow.Publisher<T> source) {
+            return new FlowPipeline<>(source);
+        }
+
+        public <R> FlowPipeline<R> map(Function<? super T, ? extends R> mapper) {
+            return via(down -> new FlowStage<T, R>(down) {
+                @Override
+                void next(T item) { downstream.onNext(mapper.apply(item)); }
+            });
+        }
+
+        public FlowPipeline<T> filter(Predicate<? super T> predicate) {
+            return via(down -> new FlowStage<T, T>(down) {
+                @Override
+                void next(T item) {
+                    if (predicate.test(item)) downstream.onNext(item);
+                    else upstream.request(1);
+                }
+            });
+        }
+
+        public FlowPipeline<List<T>> chunk(int size) {
+            if (size < 1) throw new IllegalArgumentException("size must be >= 1");
+            return via(down -> new FlowStage<T, List<T>>(down) {
+                private List<T> batch = new ArrayList<>(size);
+
+                @Override
+                public void request(long n) {
+                    upstream.request(n >= Long.MAX_VALUE / size ? Long.MAX_VALUE : n * size);
+                }
+
+                @Override
+                void next(T item) {
+                    batch.add(item);
+                    if (batch.size() == size) {
+                        List<T> full = batch;
+                        batch = new ArrayList<>(size);
+                        downstream.onNext(full);
+                    }
+                }
+
+                @Override
+                public void onComplete() {
+                    if (!batch.isEmpty()) downstream.onNext(batch);
+                    downstream.onComplete();
+                }
+            });
+        }
+
+        // withLogging-style stage: logs subscription, completion with element count, and errors
+        public FlowPipeline<T> logging(String label) {
+            return via(down -> new FlowStage<T, T>(down) {
+                private long seen;
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    System.out.println("[" + label + "] start");
+                    super.onSubscribe(subscription);
+                }
+
+                @Override
+                void next(T item) {
+                    seen++;
+                    downstream.onNext(item);
+                }
+
+                @Override
+                public void onComplete() {
+                    System.out.println("[" + label + "] end -> " + seen + " item(s)");
+                    downstream.onComplete();
+                }
+            });
+        }
+
+        // Async boundary: downstream runs on executor, upstream keeps at most bufferSize elements in flight
+        public FlowPipeline<T> async(Executor executor, int bufferSize) {
+            if (bufferSize < 1) throw new IllegalArgumentException("bufferSize must be >= 1");
+            return via(down -> new AsyncStage<>(down, executor, bufferSize));
+        }
+
+        public void subscribe(Flow.Subscriber<? super T> subscriber) {
+            publisher.subscribe(subscriber);
+        }
+
+        // Terminal: consumes with the given demand window and completes once the source completes
+        public CompletableFuture<Void> forEach(Consumer<? super T> action, int demand) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            publisher.subscribe(new Flow.Subscriber<T>() {
+                private Flow.Subscription subscription;
+                private int received;
+
+                @Override
+                public void onSubscribe(Flow.Subscription s) {
+                    subscription = s;
+                    s.request(demand);
+                }
+
+                @Override
+                public void onNext(T item) {
+                    try {
+                        action.accept(item);
+                    } catch (RuntimeException ex) {
+                        subscription.cancel();
+                        done.completeExceptionally(ex);
+                        return;
+                    }
+                    if (++received == demand) {
+                        received = 0;
+                        subscription.request(demand);
+                    }
+                }
+
+                @Override
+                public void onError(Throwable t) { done.completeExceptionally(t); }
+
+                @Override
+                public void onComplete() { done.complete(null); }
+            });
+            return done;
+        }
+
+        public CompletableFuture<List<T>> toList(int demand) {
+            List<T> out = Collections.synchronizedList(new ArrayList<>());
+            return forEach(out::add, demand).thenApply(v -> List.copyOf(out));
+        }
+
+        private <R> FlowPipeline<R> via(Function<Flow.Subscriber<? super R>, Flow.Subscriber<T>> stage) {
+            return new FlowPipeline<>(downstream -> publisher.subscribe(stage.apply(downstream)));
+        }
+    }
+
+    // Synchronous stage: sits between upstream and downstream as both Subscriber and Subscription
+    abstract static class FlowStage<T, R> implements Flow.Subscriber<T>, Flow.Subscription {
+        final Flow.Subscriber<? super R> downstream;
+        Flow.Subscription upstream;
+        private boolean failed;
+
+        FlowStage(Flow.Subscriber<? super R> downstream) {
+            this.downstream = downstream;
+        }
+
+        abstract void next(T item);
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            upstream = subscription;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(T item) {
+            if (failed) return;
+            try {
+                next(item);
+            } catch (RuntimeException ex) {
+                failed = true;
+                upstream.cancel();
+                downstream.onError(ex);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (!failed) downstream.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (!failed) downstream.onComplete();
+        }
+
+        @Override
+        public void request(long n) {
+            upstream.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            upstream.cancel();
+        }
+    }
+
+    // Bounded hand-off: requests bufferSize up front, replenishes in 3/4-buffer steps as items are delivered,
+    // and drains to downstream on the executor under a work-in-progress counter (one drain at a time)
+    static final class AsyncStage<T> extends FlowStage<T, T> implements Runnable {
+        private final Executor executor;
+        private final int bufferSize;
+        private final int replenish;
+        private final ConcurrentLinkedQueue<T> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean done;
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+        private int consumed; // drain thread only
+
+        AsyncStage(Flow.Subscriber<? super T> downstream, Executor executor, int bufferSize) {
+            super(downstream);
+            this.executor = executor;
+            this.bufferSize = bufferSize;
+            this.replenish = Math.max(1, bufferSize - bufferSize / 4);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            super.onSubscribe(subscription);
+            subscription.request(bufferSize);
+        }
+
+        @Override
+        void next(T item) {
+            queue.offer(item);
+            schedule();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done = true;
+            schedule();
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) return;
+            requested.accumulateAndGet(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            upstream.cancel();
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) executor.execute(this);
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                long r = requested.get(), emitted = 0;
+                while (emitted != r && !cancelled) {
+                    boolean finished = done;
+                    T item = queue.poll();
+                    if (item == null) {
+                        if (finished) { terminate(); return; }
+                        break;
+                    }
+                    downstream.onNext(item);
+                    emitted++;
+                    if (++consumed == replenish) {
+                        consumed = 0;
+                        upstream.request(replenish);
+                    }
+                }
+                if (cancelled) return;
+                if (done && queue.isEmpty()) { terminate(); return; }
+                if (emitted != 0 && r != Long.MAX_VALUE) requested.addAndGet(-emitted);
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void terminate() {
+            cancelled = true;
+            if (error != null) downstream.onError(error);
+            else downstream.onComplete();
+        }
+    }
+
+    // How ring pipeline threads wait for the stage ahead of them: lowest latency to lowest CPU use
+    public enum WaitStrategy {
+        BUSY_SPIN, YIELDING, SLEEPING;
+
+        void idle(int attempt) {
+            switch (this) {
+                case BUSY_SPIN -> Thread.onSpinWait();
+                case YIELDING -> { if (attempt < 100) Thread.onSpinWait(); else Thread.yield(); }
+                case SLEEPING -> { if (attempt < 100) Thread.onSpinWait(); else LockSupport.parkNanos(1_000); }
+            }
+        }
+    }
+
+    // Sequence counter padded on both sides so neighbouring sequences never share a cache line
+    static class SequenceLeftPad { long p1, p2, p3, p4, p5, p6, p7; }
+    static class SequenceValue extends SequenceLeftPad { volatile long value = -1; }
+    static final class Sequence extends SequenceValue {
+        private static final VarHandle VALUE;
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+        long p9, p10, p11, p12, p13, p14, p15;
+
+        long get() { return value; }
+        void setRelease(long v) { VALUE.setRelease(this, v); }
+    }
+
+    // Disruptor-style pipeline: one pre-allocated ring of slots and one thread per stage. Stage i processes a
+    // slot in place once stage i-1 has released it and the producer only reuses a slot after the last stage
+    // (the sink) is done with it, so there are no locks or queue nodes per event (slots hold references, so a
+    // stage that boxes its result still allocates). Stages catch up in batches.
+    // Returning null from a stage drops the event for the stages after it. A stage that throws drops that
+    // event too; the first failure is rethrown (wrapped) from the next publish() and from close().
+    public static final class RingPipeline<I, O> {
+        private final List<Function<Object, Object>> stages;
+
+        private RingPipeline(List<Function<Object, Object>> stages) {
+            this.stages = stages;
+        }
+
+        public static <I> RingPipeline<I, I> builder() {
+            return new RingPipeline<>(List.of());
+        }
+
+        @SuppressWarnings("unchecked")
+        public <R> RingPipeline<I, R> then(Function<? super O, ? extends R> stage) {
+            List<Function<Object, Object>> next = new ArrayList<>(stages);
+            next.add(v -> stage.apply((O) v));
+            return new RingPipeline<>(List.copyOf(next));
+        }
+
+        @SuppressWarnings("unchecked")
+        public Running<I> start(int bufferSize, WaitStrategy waitStrategy, Consumer<? super O> sink) {
+            List<Function<Object, Object>> all = new ArrayList<>(stages);
+            all.add(v -> { sink.accept((O) v); return v; });
+            return new Running<>(bufferSize, waitStrategy, all);
+        }
+
+        public static final class Running<I> implements AutoCloseable {
+            private final Object[] slots;
+            private final int mask;
+            private final WaitStrategy waitStrategy;
+            private final Sequence cursor = new Sequence();
+            private final Sequence[] stageSequences;
+            private final Thread[] threads;
+            private volatile boolean alive = true;
+            private final AtomicReference<Throwable> failure = new AtomicReference<>();
+            private long nextToPublish; // single producer
+
+            private Running(int bufferSize, WaitStrategy waitStrategy, List<Function<Object, Object>> stages) {
+                if (bufferSize < 2 || Integer.bitCount(bufferSize) != 1) throw new IllegalArgumentException("bufferSize must be a power of two");
+                this.slots = new Object[bufferSize];
+                this.mask = bufferSize - 1;
+                this.waitStrategy = waitStrategy;
+                this.stageSequences = new Sequence[stages.size()];
+                this.threads = new Thread[stages.size()];
+                for (int i = 0; i < stages.size(); i++) {
+                    stageSequences[i] = new Sequence();
+                    Sequence upstream = i == 0 ? cursor : stageSequences[i - 1];
+                    Sequence own = stageSequences[i];
+                    Function<Object, Object> stage = stages.get(i);
+                    threads[i] = new Thread(() -> runStage(upstream, own, stage), "ring-stage-" + i);
+                    threads[i].setDaemon(true);
+                    threads[i].start();
+                }
+            }
+
+            private void runStage(Sequence upstream, Sequence own, Function<Object, Object> stage) {
+                long next = own.get() + 1;
+                int attempt = 0;
+                while (true) {
+                    long available = upstream.get();
+                    if (available < next) {
+                        if (!alive) return;
+                        waitStrategy.idle(attempt++);
+                        continue;
+                    }
+                    attempt = 0;
+                    for (long seq = next; seq <= available; seq++) {
+                        int idx = (int) (seq & mask);
+                        Object v = slots[idx];
+                        if (v == null) continue;
+                        try {
+                            slots[idx] = stage.apply(v);
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t); // keep the first, the thread and its sequence go on
+                            slots[idx] = null;
+                        }
+                    }
+                    own.setRelease(available);
+                    next = available + 1;
+                }
+            }
+
+            // Single-producer publish; waits (per the wait strategy) while the ring is full
+            public void publish(I value) {
+                rethrowFailure();
+                long seq = nextToPublish++;
+                Sequence last = stageSequences[stageSequences.length - 1];
+                for (int attempt = 0; seq - slots.length > last.get(); attempt++) waitStrategy.idle(attempt);
+                slots[(int) (seq & mask)] = value;
+                cursor.setRelease(seq);
+            }
+
+            // Waits for every published event to reach the sink, then stops the stage threads
+            @Override
+            public void close() {
+                Sequence last = stageSequences[stageSequences.length - 1];
+                for (int attempt = 0; last.get() < nextToPublish - 1; attempt++) waitStrategy.idle(attempt);
+                alive = false;
+                for (Thread t : threads) {
+                    try { t.join(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+                }
+                rethrowFailure();
+            }
+
+            private void rethrowFailure() {
+                Throwable t = failure.get();
+                if (t != null) throw new IllegalStateException("ring pipeline stage failed", t);
+            }
+        }
+    }
+
+    // Demo helper: splits recursively `depth` levels and traverses the pieces in encounter order
+    private static <T> void splitDeep(Spliterator<T> spliterator, int depth, List<T> out) {
+        if (depth == 0) {
+            spliterator.forEachRemaining(out::add);
+            return;
+        }
+        Spliterator<T> prefix = spliterator.trySplit();
+        if (prefix != null) splitDeep(prefix, depth - 1, out);
+        splitDeep(spliterator, depth - 1, out);
+    }
+
     public static void main(String[] args) {
         // Task 2: pipeline with logging, filtering, mapping, batching, reducing
         List<Integer> nums = IntStream.rangeClosed(1, 12).boxed().toList();
@@ -64,9 +1640,96 @@ public class Solution {
                         .toList()
         );
 
+        // Same pipeline with per-stage counts, time and allocation
+        withInstrumentation(nums.stream(), p -> p
+                .filter("odds", n -> n % 2 == 1)
+                .map("squares", n -> n * n)
+                .chunk("batches", 3)
+                .terminal("sum-per-batch", s -> s.map(batch -> batch.stream().reduce(0, Integer::sum)).toList())
+        );
+
+        // Push-based variant of the same pipeline over a Flow source with bounded buffers end to end
+        ExecutorService flowPool = Executors.newFixedThreadPool(2);
+        SubmissionPublisher<Integer> flowSource = new SubmissionPublisher<>(flowPool, 16);
+        try {
+            CompletableFuture<List<Integer>> flowSums = FlowPipeline.from(flowSource)
+                    .logging("flow")
+                    .filter(n -> n % 2 == 1)
+                    .map(n -> n * n)
+                    .chunk(3)
+                    .async(flowPool, 8)
+                    .map(batch -> batch.stream().reduce(0, Integer::sum))
+                    .toList(4);
+            nums.forEach(flowSource::submit); // blocks the producer whenever the 16-slot buffer is full
+            flowSource.close(); // completes the pipeline
+            System.out.println("Flow pipeline sums: " + flowSums.join());
+        } finally {
+            flowSource.close(); // no-op once closed
+            flowPool.shutdown();
+        }
+
+        // Same stages pipelined across threads on a pre-allocated ring (filter -> square -> sink batches of 3)
+        List<Integer> ringSums = new ArrayList<>();
+        int[] ringBatch = new int[2]; // running sum, elements in batch
+        RingPipeline<Integer, Integer> ring = RingPipeline.<Integer>builder()
+                .then(n -> n % 2 == 1 ? n : null)
+                .then(n -> n * n);
+        try (RingPipeline.Running<Integer> running = ring.start(1024, WaitStrategy.YIELDING, sq -> {
+            ringBatch[0] += sq;
+            if (++ringBatch[1] == 3) { ringSums.add(ringBatch[0]); ringBatch[0] = 0; ringBatch[1] = 0; }
+        })) {
+            nums.forEach(running::publish);
+        }
+        System.out.println("Ring pipeline batch sums: " + ringSums);
+        long ringEvents = 2_000_000;
+        LongAdder ringSeen = new LongAdder();
+        long ringStart = System.nanoTime();
+        try (RingPipeline.Running<Integer> running = RingPipeline.<Integer>builder().then(n -> n + 1)
+                .start(1 << 14, WaitStrategy.YIELDING, n -> ringSeen.increment())) {
+            for (int i = 0; i < ringEvents; i++) running.publish(i & 1023);
+        }
+        System.out.printf("Ring pipeline throughput: %.1fM events/s (%d delivered)%n",
+                ringEvents / ((System.nanoTime() - ringStart) / 1e9) / 1e6, ringSeen.sum());
+        try (RingPipeline.Running<Integer> running = RingPipeline.<Integer>builder().then(n -> 100 / n)
+                .start(16, WaitStrategy.YIELDING, n -> {})) {
+            List.of(5, 0, 4).forEach(running::publish);
+        } catch (IllegalStateException e) {
+            System.out.println("Ring pipeline stage failure surfaced: " + e.getCause());
+        }
+
+        // Lazy chunking: works on an infinite stream and keeps batch boundaries under parallel splitting
+        System.out.println("Chunks of infinite stream: " + chunk(Stream.iterate(1, n -> n + 1), 4).limit(3).toList());
+        List<List<Integer>> parallelChunks = chunk(IntStream.range(0, 10_000).boxed().parallel(), 7).toList();
+        boolean sameAsSequential = parallelChunks.equals(chunk(IntStream.range(0, 10_000).boxed(), 7).toList());
+        System.out.println("Parallel chunks=" + parallelChunks.size() + ", identical to sequential=" + sameAsSequential);
+        List<List<Integer>> deepSplit = new ArrayList<>();
+        splitDeep(chunk(IntStream.range(0, 40).boxed().toList().stream(), 7).spliterator(), 4, deepSplit);
+        System.out.println("Chunks identical after 4 levels of manual splits: "
+                + deepSplit.equals(chunk(IntStream.range(0, 40).boxed(), 7).toList()));
+
+        // Size-or-time batching: a burst flushes by size, a trickle flushes by deadline
+        try (TimedBatcher<Integer> batcher = new TimedBatcher<>(4, Duration.ofMillis(30),
+                batch -> System.out.println("Timed batch: " + batch))) {
+            IntStream.rangeClosed(1, 9).forEach(batcher::offer); // burst: [1..4], [5..8], then 9 waits for deadline
+            try { Thread.sleep(60); } catch (InterruptedException ignored) {}
+            batcher.offer(10);                                     // trickle: flushed on close
+        }
+        try (TimedBatcher<Integer> failing = new TimedBatcher<>(4, Duration.ofMillis(10), batch -> {
+            throw new IllegalArgumentException("sink rejected " + batch);
+        })) {
+            failing.offer(1);
+            try { Thread.sleep(40); } catch (InterruptedException ignored) {}
+            failing.offer(2); // the deadline flush of [1] failed: reported here
+        } catch (IllegalStateException e) {
+            System.out.println("Timed batcher deadline failure surfaced: " + e.getCause().getMessage());
+        }
+
         // Task 3: timed supplier
         TimedResult<Integer> timedSum = timed(() -> IntStream.rangeClosed(1, 1_000_000).sum());
         System.out.println("Timed sum -> result=" + timedSum.result() + ", ms=" + timedSum.durationMillis());
+        BenchmarkResult bench = benchmark(() -> IntStream.rangeClosed(1, 10_000).sum(), 2_000, 5_000);
+        System.out.printf("Benchmark sum 1..10_000 -> mean=%.0fns stddev=%.0fns p50=%dns p99=%dns p999=%dns%n",
+                bench.meanNanos(), bench.stddevNanos(), bench.p50Nanos(), bench.p99Nanos(), bench.p999Nanos());
 
         // Task 4 & 5: word frequency with stop-words and optional parallelism
         List<String> sentences = List.of(
@@ -82,6 +1745,44 @@ public class Solution {
 
         Map<String, Long> freqParallel = wordFreq(sentences, stop, true);
         System.out.println("Parallel freq:   " + freqParallel);
+
+        // Dedicated counting engine: same counts, far fewer allocations
+        System.out.println("Fast freq matches: " + wordFreqFast(sentences, stop, false).equals(freqSequential)
+                + " / parallel " + wordFreqFast(sentences, stop, true).equals(freqSequential));
+        System.out.println("Encoded freq matches: " + wordFreqEncoded(sentences, stop, false).equals(freqSequential)
+                + " / parallel " + wordFreqEncoded(sentences, stop, true).equals(freqSequential));
+        Random rnd = new Random(7);
+        List<String> corpus = IntStream.range(0, 20_000)
+                .mapToObj(i -> IntStream.range(0, 12).mapToObj(j -> "Word" + rnd.nextInt(5_000)).collect(Collectors.joining(" ")))
+                .toList();
+        SlidingWordCounter window = new SlidingWordCounter(stop, 3, Duration.ofMinutes(10));
+        sentences.forEach(window::append); // 4th sentence pushes the 1st out of the 3-sentence window
+        System.out.println("Sliding window top 3: " + window.top(3) + ", 'java' now " + window.count("java"));
+        SlidingWordCounter churn = new SlidingWordCounter(stop, 100, Duration.ofMinutes(10));
+        for (int i = 0; i < 100_000; i++) churn.append("common word" + i, 0);
+        System.out.println("Sliding window over 100000 unique words keeps " + churn.vocabularySize()
+                + " interned, 'common' counted " + churn.count("common"));
+
+        List<String> zipfCorpus = IntStream.range(0, 20_000)
+                .mapToObj(i -> IntStream.range(0, 12).mapToObj(j -> "w" + (int) Math.pow(50_000, rnd.nextDouble())).collect(Collectors.joining(" ")))
+                .toList();
+        HeavyHitters hh = heavyHitters(zipfCorpus, stop, 256, 5, true);
+        Map<String, Long> exact = wordFreqFast(zipfCorpus, stop, false);
+        System.out.println("Heavy hitters (maxError=" + hh.maxError() + " of " + hh.totalCount() + "): "
+                + hh.top().stream().map(h -> h.word() + "~" + h.count() + " (exact " + exact.get(h.word()) + ")").toList());
+        // Bloom filter instead of a HashSet for a large exclusion list: ~1.2 MB for a million words at 1%
+        BloomFilter<String> stopFilter = stop.stream().collect(toBloomFilter(1_000, 0.0001));
+        System.out.println("Bloom stop-word freq matches: " + wordFreq(sentences, stopFilter.asPredicate(), true).equals(freqSequential));
+        BloomFilter<String> bigFilter = IntStream.range(0, 1_000_000).parallel().mapToObj(i -> "stop" + i).collect(toBloomFilterConcurrent(1_000_000, 0.01));
+        long falsePositives = IntStream.range(0, 1_000_000).mapToObj(i -> "word" + i).filter(bigFilter.asPredicate()).count();
+        boolean noFalseNegatives = IntStream.range(0, 1_000_000).mapToObj(i -> "stop" + i).allMatch(bigFilter.asPredicate());
+        System.out.printf("Bloom 1M words: %d KB, k=%d, no false negatives=%b, false-positive rate=%.3f%%%n",
+                bigFilter.sizeInBytes() / 1024, bigFilter.hashFunctions(), noFalseNegatives, falsePositives / 10_000.0);
+        BenchmarkResult slow = benchmark(() -> wordFreq(corpus, stop, true), 5, 20);
+        BenchmarkResult fast = benchmark(() -> wordFreqFast(corpus, stop, true), 5, 20);
+        BenchmarkResult encoded = benchmark(() -> wordFreqEncoded(corpus, stop, true), 5, 20);
+        System.out.printf("wordFreq parallel p50=%.1fms, wordFreqFast parallel p50=%.1fms, wordFreqEncoded parallel p50=%.1fms%n",
+                slow.p50Nanos() / 1e6, fast.p50Nanos() / 1e6, encoded.p50Nanos() / 1e6);
     }
 }
 
@@ -9,15 +9,108 @@ public class Solution {
 
     // 1) toImmutableList collector
     public static <T> Collector<T, ?, List<T>> toImmutableList() {
+        return toImmutableList(16);
+    }
+
+    // 1b) toImmutableList with a size hint. Elements go into a chain of array chunks that grows without
+    // copying, parallel partials are combined by linking their chunks, and the finisher copies each element
+    // once into the final array - or not at all when everything fit in a first chunk at least half full. The
+    // hint presizes that chunk only up to MAX_PRESIZE: every parallel leaf gets its own buffer, so a full-size
+    // hint per leaf would multiply peak memory by the number of leaves.
+    public static <T> Collector<T, ?, List<T>> toImmutableList(int expectedSize) {
         return Collector.of(
-                ArrayList::new,
-                List::add,
-                (left, right) -> { left.addAll(right); return left; },
-                list -> List.copyOf(list),
-                Collector.Characteristics.UNORDERED
+                () -> new ChunkedBuffer(expectedSize),
+                (buf, v) -> buf.add(Objects.requireNonNull(v)),
+                ChunkedBuffer::append,
+                ChunkedBuffer::<T>toImmutableList
         );
     }
 
+    // 1c) Stream-level variant: toArray() already presizes from the spliterator's exact size when the
+    // pipeline is SIZED (parallel leaves write straight into the one array), and the array is wrapped as is
+    public static <T> List<T> immutableListOf(Stream<T> stream) {
+        Object[] elements = stream.toArray();
+        for (Object e : elements) Objects.requireNonNull(e);
+        return new ArrayBackedList<>(elements, elements.length);
+    }
+
+    static final class ChunkedBuffer {
+        private static final int MAX_PRESIZE = 1 << 13;
+        private final List<Object[]> chunks = new ArrayList<>();
+        private final List<Integer> lengths = new ArrayList<>();
+        private Object[] current;
+        private int used;
+        private int total;
+
+        ChunkedBuffer(int expectedSize) {
+            current = new Object[Math.max(1, Math.min(expectedSize, MAX_PRESIZE))];
+        }
+
+        void add(Object v) {
+            if (used == current.length) {
+                seal();
+                current = new Object[Math.max(16, total)]; // geometric growth, old chunks stay in place
+            }
+            current[used++] = v;
+            total++;
+        }
+
+        private void seal() {
+            if (used > 0) {
+                chunks.add(current);
+                lengths.add(used);
+            }
+            current = new Object[0];
+            used = 0;
+        }
+
+        ChunkedBuffer append(ChunkedBuffer other) {
+            seal();
+            other.seal();
+            chunks.addAll(other.chunks);
+            lengths.addAll(other.lengths);
+            total += other.total;
+            return this;
+        }
+
+        <T> List<T> toImmutableList() {
+            seal();
+            // A single chunk is wrapped in place only if at least half full, so an over-sized hint can't pin a mostly
+            // empty array behind a short list; otherwise it's copied into an exact-size array like several chunks are
+            if (chunks.size() == 1 && total >= chunks.get(0).length / 2) return new ArrayBackedList<>(chunks.get(0), total);
+            Object[] all = new Object[total];
+            int pos = 0;
+            for (int i = 0; i < chunks.size(); i++) {
+                System.arraycopy(chunks.get(i), 0, all, pos, lengths.get(i));
+                pos += lengths.get(i);
+            }
+            return new ArrayBackedList<>(all, total);
+        }
+    }
+
+    // Read-only List view over an array the collector owns exclusively, so no defensive copy is needed
+    static final class ArrayBackedList<T> extends AbstractList<T> implements RandomAccess {
+        private final Object[] elements;
+        private final int size;
+
+        ArrayBackedList(Object[] elements, int size) {
+            this.elements = elements;
+            this.size = size;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T get(int index) {
+            Objects.checkIndex(index, size);
+            return (T) elements[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
     // 2) toStats collector for ints
     public static Collector<Integer, ?, Stats> toStats() {
         class Acc { long count; long sum; int min = Integer.MAX_VALUE; int max = Integer.MIN_VALUE; }
@@ -29,34 +122,566 @@ public class Solution {
         );
     }
 
+    // 2b) Primitive statistics with higher moments. No boxing: IntStream/LongStream/DoubleStream feed the
+    // accumulator directly through their three-argument collect. Welford's update keeps a single pass
+    // numerically stable, and Chan/Pebay pairwise formulas merge partial results from parallel substreams.
+    public record MomentStats(long count, double mean, double variance, double stddev,
+                              double skewness, double kurtosis, double min, double max) {}
+
+    public static final class Moments implements IntConsumer, LongConsumer, DoubleConsumer {
+        private long n;
+        private double mean, m2, m3, m4;
+        private double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+
+        @Override public void accept(int value) { accept((double) value); }
+        @Override public void accept(long value) { accept((double) value); }
+
+        @Override
+        public void accept(double x) {
+            long n1 = n++;
+            double delta = x - mean;
+            double deltaN = delta / n;
+            double deltaN2 = deltaN * deltaN;
+            double term1 = delta * deltaN * n1;
+            mean += deltaN;
+            m4 += term1 * deltaN2 * ((double) n * n - 3 * n + 3) + 6 * deltaN2 * m2 - 4 * deltaN * m3;
+            m3 += term1 * deltaN * (n - 2) - 3 * deltaN * m2;
+            m2 += term1;
+            min = Math.min(min, x);
+            max = Math.max(max, x);
+        }
+
+        public void combine(Moments other) {
+            if (other.n == 0) return;
+            if (n == 0) {
+                n = other.n; mean = other.mean; m2 = other.m2; m3 = other.m3; m4 = other.m4; min = other.min; max = other.max;
+                return;
+            }
+            double na = n, nb = other.n, total = na + nb;
+            double delta = other.mean - mean, delta2 = delta * delta;
+            double newM2 = m2 + other.m2 + delta2 * na * nb / total;
+            double newM3 = m3 + other.m3 + delta * delta2 * na * nb * (na - nb) / (total * total)
+                    + 3 * delta * (na * other.m2 - nb * m2) / total;
+            double newM4 = m4 + other.m4 + delta2 * delta2 * na * nb * (na * na - na * nb + nb * nb) / (total * total * total)
+                    + 6 * delta2 * (na * na * other.m2 + nb * nb * m2) / (total * total)
+                    + 4 * delta * (na * other.m3 - nb * m3) / total;
+            mean += delta * nb / total;
+            m2 = newM2;
+            m3 = newM3;
+            m4 = newM4;
+            n += other.n;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+
+        // Sample variance; skewness and excess kurtosis use the population (moment) definitions
+        public MomentStats toStats() {
+            if (n == 0) return new MomentStats(0, 0, 0, 0, 0, 0, 0, 0);
+            double variance = n > 1 ? m2 / (n - 1) : 0;
+            double skewness = m2 > 0 ? Math.sqrt(n) * m3 / Math.pow(m2, 1.5) : 0;
+            double kurtosis = m2 > 0 ? n * m4 / (m2 * m2) - 3 : 0;
+            return new MomentStats(n, mean, variance, Math.sqrt(variance), skewness, kurtosis, min, max);
+        }
+    }
+
+    public static MomentStats momentsOf(IntStream values) {
+        return values.collect(Moments::new, Moments::accept, Moments::combine).toStats();
+    }
+
+    public static MomentStats momentsOf(LongStream values) {
+        return values.collect(Moments::new, Moments::accept, Moments::combine).toStats();
+    }
+
+    public static MomentStats momentsOf(DoubleStream values) {
+        return values.collect(Moments::new, Moments::accept, Moments::combine).toStats();
+    }
+
     // 3) groupingAndTransforming: group by key, map value, then aggregate to list
     public static <T, K, V> Collector<T, ?, Map<K, List<V>>> groupingAndTransforming(Function<T, K> keyFn, Function<T, V> valFn) {
         return Collectors.groupingBy(keyFn, Collectors.mapping(valFn, Collectors.toList()));
     }
 
-    // 4) topN collector using a priority queue (min-heap)
+    // 4) topN collector. Candidates go into a buffer of up to 2n slots; when it fills, quickselect keeps the
+    // n best and their minimum becomes a cut-off that rejects later elements with one comparison. Merging
+    // partials just feeds one buffer into the other, and only the final n elements are sorted:
+    // O(total + n log n) instead of a heap offer/poll per element and per merged element.
     public static <T> Collector<T, ?, List<T>> topN(int n, Comparator<T> comparator) {
+        if (n < 0) throw new IllegalArgumentException("n must be >= 0");
         return Collector.of(
-                () -> new PriorityQueue<>(n, comparator),
-                (pq, v) -> { pq.offer(v); if (pq.size() > n) pq.poll(); },
-                (a, b) -> { b.forEach(v -> { a.offer(v); if (a.size() > n) a.poll(); }); return a; },
-                pq -> {
-                    List<T> out = new ArrayList<>(pq);
-                    out.sort(comparator.reversed()); // highest first
-                    return List.copyOf(out);
+                () -> new TopNBuffer<>(n, comparator),
+                TopNBuffer::add,
+                TopNBuffer::merge,
+                TopNBuffer::toList
+        );
+    }
+
+    static final class TopNBuffer<T> {
+        private final int n;
+        private final Comparator<? super T> comparator;
+        private Object[] buf;
+        private int size;
+        private T cutoff; // n-th best seen so far, set after the first compaction
+
+        TopNBuffer(int n, Comparator<? super T> comparator) {
+            this.n = n;
+            this.comparator = comparator;
+            this.buf = new Object[(int) Math.min(2L * n, 64)];
+        }
+
+        void add(T v) {
+            if (n == 0 || (cutoff != null && comparator.compare(v, cutoff) <= 0)) return;
+            if (size == buf.length) {
+                if (buf.length < 2L * n) buf = Arrays.copyOf(buf, (int) Math.min(2L * n, buf.length * 2L));
+                else compact();
+            }
+            buf[size++] = v;
+        }
+
+        @SuppressWarnings("unchecked")
+        TopNBuffer<T> merge(TopNBuffer<T> other) {
+            for (int i = 0; i < other.size; i++) add((T) other.buf[i]);
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void compact() {
+            Comparator<Object> desc = (a, b) -> comparator.compare((T) b, (T) a);
+            select(buf, size, n - 1, desc);
+            size = n;
+            T min = (T) buf[0];
+            for (int i = 1; i < n; i++) if (comparator.compare((T) buf[i], min) < 0) min = (T) buf[i];
+            cutoff = min;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<T> toList() {
+            if (size > n) compact();
+            Object[] out = Arrays.copyOf(buf, size);
+            Arrays.sort(out, (a, b) -> comparator.compare((T) b, (T) a)); // highest first
+            return new ArrayBackedList<>(out, out.length);
+        }
+    }
+
+    // Quickselect (random pivot, three-way partition so runs of equal keys are settled in one pass instead of
+    // going quadratic): afterwards a[k] holds the element of rank k under cmp and a[0..k) hold the elements
+    // that order before it or tie with it
+    static <E> void select(E[] a, int len, int k, Comparator<? super E> cmp) {
+        int lo = 0, hi = len - 1;
+        Random rnd = new Random(len * 31L + k);
+        while (lo < hi) {
+            E pivot = a[lo + rnd.nextInt(hi - lo + 1)];
+            int lt = lo, i = lo, gt = hi;
+            while (i <= gt) {
+                int c = cmp.compare(a[i], pivot);
+                if (c < 0) swap(a, lt++, i++);
+                else if (c > 0) swap(a, i, gt--);
+                else i++;
+            }
+            // a[lo..lt) < pivot, a[lt..gt] == pivot, a(gt..hi] > pivot
+            if (k < lt) hi = lt - 1;
+            else if (k > gt) lo = gt + 1;
+            else return;
+        }
+    }
+
+    private static <E> void swap(E[] a, int i, int j) {
+        E t = a[i]; a[i] = a[j]; a[j] = t;
+    }
+
+    // 4b) Primitive topN: a bounded min-heap in a long[] (ints widen losslessly) or double[]; an element only
+    // touches the heap when it beats the current root. Partial heaps merge by offering one into the other.
+    static final class LongTopN implements IntConsumer, LongConsumer {
+        private final long[] heap;
+        private int size;
+
+        LongTopN(int n) { heap = new long[n]; }
+
+        @Override public void accept(int v) { accept((long) v); }
+
+        @Override
+        public void accept(long v) {
+            if (size < heap.length) {
+                int i = size++;
+                while (i > 0 && heap[(i - 1) / 2] > v) { heap[i] = heap[(i - 1) / 2]; i = (i - 1) / 2; }
+                heap[i] = v;
+            } else if (size > 0 && v > heap[0]) {
+                int i = 0;
+                while (true) {
+                    int l = 2 * i + 1, r = l + 1, c = l;
+                    if (l >= size) break;
+                    if (r < size && heap[r] < heap[l]) c = r;
+                    if (heap[c] >= v) break;
+                    heap[i] = heap[c];
+                    i = c;
                 }
+                heap[i] = v;
+            }
+        }
+
+        void merge(LongTopN other) {
+            for (int i = 0; i < other.size; i++) accept(other.heap[i]);
+        }
+
+        long[] sortedDescending() {
+            long[] out = Arrays.copyOf(heap, size);
+            Arrays.sort(out);
+            for (int i = 0, j = out.length - 1; i < j; i++, j--) { long t = out[i]; out[i] = out[j]; out[j] = t; }
+            return out;
+        }
+    }
+
+    static final class DoubleTopN implements DoubleConsumer {
+        private final double[] heap;
+        private int size;
+
+        DoubleTopN(int n) { heap = new double[n]; }
+
+        @Override
+        public void accept(double v) {
+            if (size < heap.length) {
+                int i = size++;
+                while (i > 0 && Double.compare(heap[(i - 1) / 2], v) > 0) { heap[i] = heap[(i - 1) / 2]; i = (i - 1) / 2; }
+                heap[i] = v;
+            } else if (size > 0 && Double.compare(v, heap[0]) > 0) {
+                int i = 0;
+                while (true) {
+                    int l = 2 * i + 1, r = l + 1, c = l;
+                    if (l >= size) break;
+                    if (r < size && Double.compare(heap[r], heap[l]) < 0) c = r;
+                    if (Double.compare(heap[c], v) >= 0) break;
+                    heap[i] = heap[c];
+                    i = c;
+                }
+                heap[i] = v;
+            }
+        }
+
+        void merge(DoubleTopN other) {
+            for (int i = 0; i < other.size; i++) accept(other.heap[i]);
+        }
+
+        double[] sortedDescending() {
+            double[] out = Arrays.copyOf(heap, size);
+            Arrays.sort(out);
+            for (int i = 0, j = out.length - 1; i < j; i++, j--) { double t = out[i]; out[i] = out[j]; out[j] = t; }
+            return out;
+        }
+    }
+
+    public static int[] topN(IntStream values, int n) {
+        return Arrays.stream(values.collect(() -> new LongTopN(n), LongTopN::accept, LongTopN::merge).sortedDescending())
+                .mapToInt(v -> (int) v).toArray();
+    }
+
+    public static long[] topN(LongStream values, int n) {
+        return values.collect(() -> new LongTopN(n), LongTopN::accept, LongTopN::merge).sortedDescending();
+    }
+
+    public static double[] topN(DoubleStream values, int n) {
+        return values.collect(() -> new DoubleTopN(n), DoubleTopN::accept, DoubleTopN::merge).sortedDescending();
+    }
+
+    // 5) KLL quantile sketch: level h holds items of weight 2^h, and level capacities shrink by 2/3 per level
+    // below the top, so the sketch holds about 3k items for any stream length. A full level is sorted and every
+    // other item (random offset) is promoted, which keeps the rank error within about 2/k. Sketches merge level by
+    // level, so parallel substreams combine correctly.
+    public static final class KllSketch implements DoubleConsumer {
+        private final int k;
+        private double[][] levels = { new double[8] };
+        private int[] sizes = new int[1];
+        private int[] capacities; // per level, recomputed only when a level is added
+        private long count;
+        private double min = Double.NaN, max = Double.NaN;
+        private long seed = 0x9E3779B97F4A7C15L;
+
+        public KllSketch(int k) {
+            if (k < 8) throw new IllegalArgumentException("k must be >= 8");
+            this.k = k;
+            this.capacities = new int[] { k };
+        }
+
+        @Override
+        public void accept(double value) {
+            if (Double.isNaN(value)) return;
+            append(0, value);
+            count++;
+            min = count == 1 ? value : Math.min(min, value);
+            max = count == 1 ? value : Math.max(max, value);
+            if (sizes[0] >= capacities[0]) compress();
+        }
+
+        private void addLevel() {
+            levels = Arrays.copyOf(levels, levels.length + 1);
+            levels[levels.length - 1] = new double[8];
+            sizes = Arrays.copyOf(sizes, sizes.length + 1);
+            capacities = new int[levels.length];
+            double cap = k;
+            for (int h = levels.length - 1; h >= 0; h--, cap *= 2.0 / 3.0) capacities[h] = Math.max(8, (int) Math.ceil(cap));
+        }
+
+        private void append(int level, double value) {
+            if (sizes[level] == levels[level].length) levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+            levels[level][sizes[level]++] = value;
+        }
+
+        private void compress() {
+            for (int h = 0; h < levels.length; h++) {
+                if (sizes[h] < capacities[h]) continue;
+                if (h == levels.length - 1) addLevel();
+                double[] level = levels[h];
+                int size = sizes[h];
+                Arrays.sort(level, 0, size);
+                int keep = size & 1; // odd count: the smallest item stays behind at this level
+                seed ^= seed << 13; seed ^= seed >>> 7; seed ^= seed << 17;
+                for (int i = keep + (int) (seed & 1); i < size; i += 2) append(h + 1, level[i]);
+                sizes[h] = keep;
+            }
+        }
+
+        public KllSketch merge(KllSketch other) {
+            if (other.count == 0) return this;
+            while (levels.length < other.levels.length) addLevel();
+            for (int h = 0; h < other.levels.length; h++) {
+                for (int i = 0; i < other.sizes[h]; i++) append(h, other.levels[h][i]);
+            }
+            min = count == 0 ? other.min : Math.min(min, other.min);
+            max = count == 0 ? other.max : Math.max(max, other.max);
+            count += other.count;
+            compress();
+            return this;
+        }
+
+        // Approximate value at each rank fraction q in [0, 1]
+        public double[] quantiles(double... qs) {
+            double[] out = new double[qs.length];
+            if (count == 0) { Arrays.fill(out, Double.NaN); return out; }
+            for (int h = 0; h < levels.length; h++) Arrays.sort(levels[h], 0, sizes[h]);
+            long totalWeight = 0;
+            for (int h = 0; h < levels.length; h++) totalWeight += (long) sizes[h] << h;
+            int[] heads = new int[levels.length];
+            long seen = 0;
+            int next = 0;
+            Integer[] order = new Integer[qs.length];
+            for (int i = 0; i < qs.length; i++) order[i] = i;
+            Arrays.sort(order, Comparator.comparingDouble(i -> qs[i]));
+            while (next < qs.length) {
+                int best = -1;
+                for (int h = 0; h < levels.length; h++) {
+                    if (heads[h] < sizes[h] && (best < 0 || levels[h][heads[h]] < levels[best][heads[best]])) best = h;
+                }
+                if (best < 0) break;
+                double value = levels[best][heads[best]++];
+                seen += 1L << best;
+                while (next < qs.length && seen >= Math.ceil(qs[order[next]] * totalWeight)) out[order[next++]] = value;
+            }
+            while (next < qs.length) out[order[next++]] = max;
+            for (int i = 0; i < qs.length; i++) {
+                if (qs[i] <= 0) out[i] = min;
+                if (qs[i] >= 1) out[i] = max;
+            }
+            return out;
+        }
+
+        public double quantile(double q) {
+            return quantiles(q)[0];
+        }
+
+        public long count() { return count; }
+
+        // Nominal normalized rank error (2/k) this capacity scheme is sized for. It is a design target that the
+        // random compaction offsets meet with high probability, not a deterministic bound.
+        public double rankError() { return 2.0 / k; }
+
+        public int retainedItems() {
+            int total = 0;
+            for (int size : sizes) total += size;
+            return total;
+        }
+    }
+
+    public static <T> Collector<T, ?, KllSketch> toQuantileSketch(ToDoubleFunction<? super T> valueFn, int k) {
+        return Collector.of(
+                () -> new KllSketch(k),
+                (sketch, v) -> sketch.accept(valueFn.applyAsDouble(v)),
+                KllSketch::merge,
+                Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH
         );
     }
 
+    public static KllSketch quantileSketchOf(DoubleStream values, int k) {
+        return values.collect(() -> new KllSketch(k), KllSketch::accept, KllSketch::merge);
+    }
+
+    // 6) N-way single-pass aggregation. Each registered aggregate gets slots in one flat long[] accumulator
+    // (count | mins | maxes | sums | distinct bitmaps) instead of a teeing tree of wrapper collectors.
+    // Updates run kind by kind in tight loops; the finisher reads typed Keys into any record or tuple.
+    public static final class MultiAggregate<T> {
+        private enum Kind { COUNT, MIN, MAX, SUM, DISTINCT }
+
+        // Typed handle to one aggregate's result, valid only for collectors of its owner built after it was registered
+        public static final class Key<V> {
+            private final MultiAggregate<?> owner;
+            private final int generation; // registrations on the owner up to and including this one
+            private final Kind kind;
+            private final int index;
+
+            private Key(MultiAggregate<?> owner, int generation, Kind kind, int index) {
+                this.owner = owner;
+                this.generation = generation;
+                this.kind = kind;
+                this.index = index;
+            }
+        }
+
+        // Linear-counting bitmap per distinct aggregate: 4096 bits, good to a few thousand distinct values
+        private static final int DISTINCT_WORDS = 64;
+        private static final int DISTINCT_BITS = DISTINCT_WORDS * 64;
+
+        private final List<ToLongFunction<? super T>> mins = new ArrayList<>();
+        private final List<ToLongFunction<? super T>> maxes = new ArrayList<>();
+        private final List<ToLongFunction<? super T>> sums = new ArrayList<>();
+        private final List<Function<? super T, ?>> distincts = new ArrayList<>();
+        private int registered;
+
+        public static <T> MultiAggregate<T> of() {
+            return new MultiAggregate<>();
+        }
+
+        public Key<Long> count() { return new Key<>(this, 0, Kind.COUNT, 0); }
+        public Key<Long> min(ToLongFunction<? super T> fn) { mins.add(fn); return key(Kind.MIN, mins.size() - 1); }
+        public Key<Long> max(ToLongFunction<? super T> fn) { maxes.add(fn); return key(Kind.MAX, maxes.size() - 1); }
+        public Key<Long> sum(ToLongFunction<? super T> fn) { sums.add(fn); return key(Kind.SUM, sums.size() - 1); }
+        public Key<Long> distinctApprox(Function<? super T, ?> fn) { distincts.add(fn); return key(Kind.DISTINCT, distincts.size() - 1); }
+
+        private Key<Long> key(Kind kind, int index) {
+            return new Key<>(this, ++registered, kind, index);
+        }
+
+        // Read access to a finished accumulator
+        public static final class Results {
+            private final MultiAggregate<?> owner;
+            private final int generation; // registrations included in this layout
+            private final long[] state;
+            private final int minBase, maxBase, sumBase, distinctBase;
+
+            private Results(MultiAggregate<?> owner, int generation, long[] state, int minBase, int maxBase, int sumBase, int distinctBase) {
+                this.owner = owner;
+                this.generation = generation;
+                this.state = state;
+                this.minBase = minBase;
+                this.maxBase = maxBase;
+                this.sumBase = sumBase;
+                this.distinctBase = distinctBase;
+            }
+
+            // min/max are null when the stream was empty
+            @SuppressWarnings("unchecked")
+            public <V> V get(Key<V> key) {
+                if (key.owner != owner) throw new IllegalArgumentException("key belongs to a different MultiAggregate");
+                if (key.generation > generation) {
+                    throw new IllegalArgumentException("key was registered after this collector fixed its layout");
+                }
+                long count = state[0];
+                return (V) switch (key.kind) {
+                    case COUNT -> (Object) count;
+                    case MIN -> count == 0 ? null : state[minBase + key.index];
+                    case MAX -> count == 0 ? null : state[maxBase + key.index];
+                    case SUM -> state[sumBase + key.index];
+                    case DISTINCT -> estimateDistinct(distinctBase + key.index * DISTINCT_WORDS);
+                };
+            }
+
+            private long estimateDistinct(int base) {
+                int set = 0;
+                for (int w = 0; w < DISTINCT_WORDS; w++) set += Long.bitCount(state[base + w]);
+                int zeros = DISTINCT_BITS - set;
+                return Math.round(DISTINCT_BITS * Math.log((double) DISTINCT_BITS / Math.max(1, zeros)));
+            }
+        }
+
+        // Fixes the layout of the aggregates registered so far; keys registered later are rejected by its Results
+        @SuppressWarnings("unchecked")
+        public <R> Collector<T, ?, R> collect(Function<Results, R> finisher) {
+            ToLongFunction<? super T>[] minFns = mins.toArray(ToLongFunction[]::new);
+            ToLongFunction<? super T>[] maxFns = maxes.toArray(ToLongFunction[]::new);
+            ToLongFunction<? super T>[] sumFns = sums.toArray(ToLongFunction[]::new);
+            Function<? super T, ?>[] distinctFns = distincts.toArray(Function[]::new);
+            int mb = 1;
+            int xb = mb + minFns.length;
+            int sb = xb + maxFns.length;
+            int db = sb + sumFns.length;
+            int w = db + distinctFns.length * DISTINCT_WORDS;
+            int generation = registered;
+            return Collector.of(
+                    () -> {
+                        long[] state = new long[w];
+                        Arrays.fill(state, mb, xb, Long.MAX_VALUE);
+                        Arrays.fill(state, xb, sb, Long.MIN_VALUE);
+                        return state;
+                    },
+                    (state, t) -> {
+                        state[0]++;
+                        for (int i = 0; i < minFns.length; i++) state[mb + i] = Math.min(state[mb + i], minFns[i].applyAsLong(t));
+                        for (int i = 0; i < maxFns.length; i++) state[xb + i] = Math.max(state[xb + i], maxFns[i].applyAsLong(t));
+                        for (int i = 0; i < sumFns.length; i++) state[sb + i] += sumFns[i].applyAsLong(t);
+                        for (int i = 0; i < distinctFns.length; i++) {
+                            int bit = (int) ((mix64(Objects.hashCode(distinctFns[i].apply(t))) >>> 1) % DISTINCT_BITS);
+                            state[db + i * DISTINCT_WORDS + (bit >>> 6)] |= 1L << bit;
+                        }
+                    },
+                    (a, b) -> {
+                        a[0] += b[0];
+                        for (int i = mb; i < xb; i++) a[i] = Math.min(a[i], b[i]);
+                        for (int i = xb; i < sb; i++) a[i] = Math.max(a[i], b[i]);
+                        for (int i = sb; i < db; i++) a[i] += b[i];
+                        for (int i = db; i < w; i++) a[i] |= b[i];
+                        return a;
+                    },
+                    state -> finisher.apply(new Results(this, generation, state, mb, xb, sb, db))
+            );
+        }
+
+        private static long mix64(long z) {
+            z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+            z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+            return z ^ (z >>> 33);
+        }
+    }
+
     public static void main(String[] args) {
         // Demo: toImmutableList
         List<Integer> imm = Stream.of(1, 2, 3).collect(toImmutableList());
         System.out.println("Immutable list: " + imm);
+        List<Integer> presized = IntStream.range(0, 1_000).boxed().collect(toImmutableList(1_000));
+        List<Integer> parallelImm = IntStream.range(0, 100_000).boxed().parallel().collect(toImmutableList());
+        List<Integer> viaArray = immutableListOf(IntStream.range(0, 100_000).boxed().parallel().map(n -> n * 2));
+        System.out.println("Presized=" + presized.size() + ", parallel in order=" + parallelImm.equals(IntStream.range(0, 100_000).boxed().toList())
+                + ", immutableListOf last=" + viaArray.get(viaArray.size() - 1));
 
         // Demo: toStats
         Stats stats = IntStream.of(5, 1, 9, 3).boxed().collect(toStats());
         System.out.println("Stats: " + stats);
 
+        // Demo: primitive moments, sequential vs parallel merge
+        System.out.println("Moments: " + momentsOf(IntStream.of(5, 1, 9, 3)));
+        MomentStats seqMoments = momentsOf(DoubleStream.iterate(0.5, x -> x + 0.25).limit(100_000).map(x -> 1e9 + x * x));
+        MomentStats parMoments = momentsOf(DoubleStream.iterate(0.5, x -> x + 0.25).limit(100_000).map(x -> 1e9 + x * x).parallel());
+        System.out.printf("Moments seq vs parallel: var %.6e / %.6e, skew %.6f / %.6f, kurt %.6f / %.6f%n",
+                seqMoments.variance(), parMoments.variance(), seqMoments.skewness(), parMoments.skewness(),
+                seqMoments.kurtosis(), parMoments.kurtosis());
+
+        // Demo: quantile sketch vs exact percentiles
+        double[] latencies = new Random(5).doubles(1_000_000).map(u -> -Math.log(1 - u) * 20).toArray(); // exponential, mean 20
+        KllSketch sketch = quantileSketchOf(Arrays.stream(latencies).parallel(), 200);
+        double[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        double[] approx = sketch.quantiles(0.5, 0.99);
+        System.out.printf("KLL p50=%.2f (exact %.2f), p99=%.2f (exact %.2f), retained %d of %d items, rank error ~%.1f%%%n",
+                approx[0], sorted[sorted.length / 2], approx[1], sorted[(int) (sorted.length * 0.99)],
+                sketch.retainedItems(), sketch.count(), sketch.rankError() * 100);
+        KllSketch fromObjects = Stream.of("Alice", "Bob", "Cara", "Dan", "Eve").collect(toQuantileSketch(String::length, 50));
+        System.out.println("Median name length: " + fromObjects.quantile(0.5));
+
         // Demo: groupingAndTransforming
         record Person(String city, String name) {}
         List<Person> people = List.of(new Person("NY", "Alice"), new Person("NY", "Bob"), new Person("SF", "Cara"));
@@ -64,8 +689,14 @@ public class Solution {
         System.out.println("Grouped names: " + byCity);
 
         // Demo: topN
-        List<Integer> top = Stream.of(5, 2, 9, 1, 7, 9).collect(topN(3, Comparator.naturalOrder()));
+        List<Integer> top = Stream.of(5, 2, 9, 1, 7, 9).collect(topN(3, Comparator.<Integer>naturalOrder()));
         System.out.println("Top 3: " + top);
+        List<Integer> shuffled = IntStream.range(0, 200_000).boxed().collect(Collectors.toCollection(ArrayList::new));
+        Collections.shuffle(shuffled, new Random(1));
+        System.out.println("Top 5 of 200k (parallel): " + shuffled.parallelStream().collect(topN(5, Comparator.<Integer>naturalOrder())));
+        System.out.println("Primitive top 3: int " + Arrays.toString(topN(IntStream.of(5, 2, 9, 1, 7, 9), 3))
+                + ", long " + Arrays.toString(topN(shuffled.stream().mapToLong(Integer::longValue).parallel(), 3))
+                + ", double " + Arrays.toString(topN(DoubleStream.of(0.5, -1, 3.25, 2), 2)));
 
         // Demo: teeing for MinMax
         MinMax<Integer> minMax = Stream.of(5, 2, 9, 1, 7).collect(Collectors.teeing(
@@ -74,6 +705,24 @@ public class Solution {
                 (min, max) -> new MinMax<>(min.orElse(null), max.orElse(null))
         ));
         System.out.println("MinMax: " + minMax);
+
+        // Demo: N aggregates in one pass with one flat accumulator, finished into a record
+        record Summary(long count, Long min, Long max, long sum, long distinct) {}
+        MultiAggregate<Integer> agg = MultiAggregate.of();
+        MultiAggregate.Key<Long> count = agg.count();
+        MultiAggregate.Key<Long> min = agg.min(Integer::longValue);
+        MultiAggregate.Key<Long> max = agg.max(Integer::longValue);
+        MultiAggregate.Key<Long> sum = agg.sum(Integer::longValue);
+        MultiAggregate.Key<Long> distinct = agg.distinctApprox(v -> v);
+        Summary summary = Stream.of(5, 2, 9, 1, 7, 9).parallel()
+                .collect(agg.collect(r -> new Summary(r.get(count), r.get(min), r.get(max), r.get(sum), r.get(distinct))));
+        System.out.println("Multi-aggregate: " + summary);
+        MultiAggregate.Key<Long> foreign = MultiAggregate.<Integer>of().sum(Integer::longValue);
+        try {
+            Stream.of(1, 2).collect(agg.collect(r -> r.get(foreign)));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Multi-aggregate rejects foreign key: " + e.getMessage());
+        }
     }
 }
 
@@ -1,9 +1,25 @@
+import java.lang.invoke.VarHandle;
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 // Practice Set 5: Higher-Order Retry and Resilience
 public class Solution {
@@ -15,50 +31,319 @@ public class Solution {
                                           Function<Integer, Duration> backoff,
                                           Predicate<Exception> retryOn,
                                           Random jitter) {
+        return retry(action, maxAttempts, backoff, retryOn, jitter, null);
+    }
+
+    // Same as retry(...) but reports attempt latency and retry events to metrics instead of stdout
+    public static <T> RetryResult<T> retry(Supplier<T> action,
+                                          int maxAttempts,
+                                          Function<Integer, Duration> backoff,
+                                          Predicate<Exception> retryOn,
+                                          Random jitter,
+                                          ResilienceMetrics metrics) {
         Exception lastEx = null;
         for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            long start = System.nanoTime();
             try {
                 T value = action.get();
+                if (metrics != null) metrics.attemptLatency().record(System.nanoTime() - start);
                 return new RetryResult<>(true, value, null, attempt);
             } catch (Exception ex) {
                 lastEx = ex;
-                if (!retryOn.test(ex)) return new RetryResult<>(false, null, ex, attempt);
+                if (metrics != null) metrics.attemptLatency().record(System.nanoTime() - start);
+                if (!retryOn.test(ex)) {
+                    if (metrics != null) metrics.events().publish(EventKind.GAVE_UP, attempt);
+                    return new RetryResult<>(false, null, ex, attempt);
+                }
                 long delay = backoff.apply(attempt).toMillis();
                 long jitterMs = jitter.nextLong(0, Math.max(1, delay / 2));
                 long sleepFor = delay + jitterMs;
-                System.out.println("Attempt " + attempt + " failed: " + ex.getMessage() + ", sleep " + sleepFor + "ms");
+                if (metrics != null) metrics.events().publish(EventKind.RETRY, attempt);
+                else System.out.println("Attempt " + attempt + " failed: " + ex.getMessage() + ", sleep " + sleepFor + "ms");
                 try { Thread.sleep(sleepFor); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); break; }
             }
         }
+        if (metrics != null) metrics.events().publish(EventKind.GAVE_UP, maxAttempts);
         return new RetryResult<>(false, null, lastEx, maxAttempts);
     }
 
+    // Per-item outcome reported by a bulk endpoint
+    public enum ItemStatus { OK, RETRYABLE, FAILED }
+
+    public record ItemOutcome<R>(ItemStatus status, R value, Exception error) {
+        public static <R> ItemOutcome<R> ok(R value) { return new ItemOutcome<>(ItemStatus.OK, value, null); }
+        public static <R> ItemOutcome<R> retryable(Exception error) { return new ItemOutcome<>(ItemStatus.RETRYABLE, null, error); }
+        public static <R> ItemOutcome<R> failed(Exception error) { return new ItemOutcome<>(ItemStatus.FAILED, null, error); }
+    }
+
+    // outcomes are aligned with the input items; itemsSent counts every item submitted across all rounds
+    public record BatchRetryResult<R>(List<ItemOutcome<R>> outcomes, int rounds, int bulkCalls, int itemsSent) {
+        public long succeeded() { return outcomes.stream().filter(o -> o.status() == ItemStatus.OK).count(); }
+    }
+
+    // Batch-aware retry: only RETRYABLE items are re-submitted. Leftovers from every batch of a round are
+    // pooled and re-chunked into full batches, so retries from several partial failures share bulk calls.
+    // A bulk call that throws marks its whole chunk RETRYABLE (or FAILED when retryOn rejects the exception).
+    public static <T, R> BatchRetryResult<R> retryBatch(List<T> items,
+                                                       Function<List<T>, List<ItemOutcome<R>>> bulkAction,
+                                                       int maxBatchSize,
+                                                       int maxAttempts,
+                                                       Function<Integer, Duration> backoff,
+                                                       Predicate<Exception> retryOn,
+                                                       Random jitter) {
+        return retryBatch(items, bulkAction, maxBatchSize, maxAttempts, backoff, retryOn, jitter, null);
+    }
+
+    // Same as retryBatch(...) but records bulk-call latency, publishes RETRY (value = round) instead of printing,
+    // and GAVE_UP (value = items not OK) when anything ends FAILED or still RETRYABLE
+    public static <T, R> BatchRetryResult<R> retryBatch(List<T> items,
+                                                       Function<List<T>, List<ItemOutcome<R>>> bulkAction,
+                                                       int maxBatchSize,
+                                                       int maxAttempts,
+                                                       Function<Integer, Duration> backoff,
+                                                       Predicate<Exception> retryOn,
+                                                       Random jitter,
+                                                       ResilienceMetrics metrics) {
+        if (maxBatchSize < 1) throw new IllegalArgumentException("maxBatchSize must be >= 1");
+        if (maxAttempts < 1) throw new IllegalArgumentException("maxAttempts must be >= 1");
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ItemOutcome<R>[] outcomes = new ItemOutcome[items.size()];
+        int[] pending = new int[items.size()];
+        for (int i = 0; i < pending.length; i++) pending[i] = i;
+        int pendingCount = pending.length;
+        int rounds = 0, bulkCalls = 0, itemsSent = 0;
+
+        for (int attempt = 1; attempt <= maxAttempts && pendingCount > 0; attempt++) {
+            rounds++;
+            int[] next = new int[pendingCount];
+            int nextCount = 0;
+            for (int from = 0; from < pendingCount; from += maxBatchSize) {
+                int to = Math.min(pendingCount, from + maxBatchSize);
+                List<T> chunk = new ArrayList<>(to - from);
+                for (int i = from; i < to; i++) chunk.add(items.get(pending[i]));
+                bulkCalls++;
+                itemsSent += chunk.size();
+                List<ItemOutcome<R>> results;
+                long start = System.nanoTime();
+                try {
+                    results = bulkAction.apply(chunk);
+                    if (metrics != null) metrics.attemptLatency().record(System.nanoTime() - start);
+                } catch (Exception ex) {
+                    if (metrics != null) metrics.attemptLatency().record(System.nanoTime() - start);
+                    ItemOutcome<R> whole = retryOn.test(ex) ? ItemOutcome.retryable(ex) : ItemOutcome.failed(ex);
+                    results = new ArrayList<>(chunk.size());
+                    for (int i = from; i < to; i++) results.add(whole);
+                }
+                if (results.size() != chunk.size()) {
+                    throw new IllegalStateException("bulk action returned " + results.size() + " outcomes for " + chunk.size() + " items");
+                }
+                for (int i = from; i < to; i++) {
+                    ItemOutcome<R> outcome = results.get(i - from);
+                    outcomes[pending[i]] = outcome;
+                    if (outcome.status() == ItemStatus.RETRYABLE) next[nextCount++] = pending[i];
+                }
+            }
+            pending = next;
+            pendingCount = nextCount;
+            if (pendingCount > 0 && attempt < maxAttempts) {
+                long delay = backoff.apply(attempt).toMillis();
+                long sleepFor = delay + jitter.nextLong(0, Math.max(1, delay / 2));
+                if (metrics != null) metrics.events().publish(EventKind.RETRY, attempt);
+                else System.out.println("Batch round " + attempt + ": " + pendingCount + " item(s) to retry, sleep " + sleepFor + "ms");
+                try { Thread.sleep(sleepFor); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); break; }
+            }
+        }
+        BatchRetryResult<R> result = new BatchRetryResult<>(List.copyOf(Arrays.asList(outcomes)), rounds, bulkCalls, itemsSent);
+        long givenUp = outcomes.length - result.succeeded();
+        if (metrics != null && givenUp > 0) metrics.events().publish(EventKind.GAVE_UP, givenUp);
+        return result;
+    }
+
+    // Latency recorder with HDR-style log-linear buckets: 2^subBucketBits linear slots per power of two,
+    // so relative error stays below 1 / 2^subBucketBits. record() is allocation-free and lock-free.
+    public static class LatencyRecorder {
+        private final int subBucketBits;
+        private final long subBucketMask;
+        private final AtomicLongArray counts;
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        public LatencyRecorder(int subBucketBits) {
+            if (subBucketBits < 1 || subBucketBits > 10) throw new IllegalArgumentException("subBucketBits must be 1-10");
+            this.subBucketBits = subBucketBits;
+            this.subBucketMask = (1L << subBucketBits) - 1;
+            this.counts = new AtomicLongArray((64 - subBucketBits) << subBucketBits);
+        }
+
+        public void record(long nanos) {
+            long v = Math.max(0, nanos);
+            counts.incrementAndGet(indexOf(v));
+            total.incrementAndGet();
+            long cur;
+            while (v > (cur = max.get()) && !max.compareAndSet(cur, v)) { /* retry */ }
+        }
+
+        private int indexOf(long v) {
+            int msb = 63 - Long.numberOfLeadingZeros(v | 1);
+            if (msb < subBucketBits) return (int) v;
+            long sub = (v >>> (msb - subBucketBits)) & subBucketMask;
+            return ((msb - subBucketBits + 1) << subBucketBits) | (int) sub;
+        }
+
+        private long lowestValueAt(int index) {
+            int bucket = index >>> subBucketBits;
+            long sub = index & subBucketMask;
+            return bucket == 0 ? sub : ((1L << subBucketBits) + sub) << (bucket - 1);
+        }
+
+        // Highest value that maps to the same bucket as the given percentile (0-100]
+        public long valueAtPercentile(double percentile) {
+            long count = total.get();
+            if (count == 0) return 0;
+            long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= target) return Math.min(lowestValueAt(i + 1) - 1, max.get());
+            }
+            return max.get();
+        }
+
+        public LatencySnapshot snapshot() {
+            return new LatencySnapshot(total.get(), valueAtPercentile(50), valueAtPercentile(99),
+                    valueAtPercentile(99.9), max.get());
+        }
+    }
+
+    public record LatencySnapshot(long count, long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos) {}
+
+    public enum EventKind { RETRY, GAVE_UP, CIRCUIT_OPENED, CIRCUIT_HALF_OPEN, CIRCUIT_CLOSED, REJECTED }
+
+    @FunctionalInterface
+    public interface EventSink {
+        void accept(EventKind kind, long timestampNanos, long value);
+    }
+
+    // Bounded multi-producer / single-consumer ring of events stored in primitive slots.
+    // Producers never block: when the consumer falls behind, the oldest events are overwritten and counted as dropped.
+    // Each slot is guarded by a sequence number (seqlock style) so the consumer can detect overwritten slots.
+    public static class EventBuffer {
+        private static final EventKind[] KINDS = EventKind.values();
+        private final int mask;
+        private final long[] timestamps;
+        private final long[] values;
+        private final int[] kinds;
+        private final AtomicLongArray published;
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private long tail; // consumer-owned
+
+        public EventBuffer(int capacity) {
+            if (capacity < 2 || Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("capacity must be a power of two");
+            this.mask = capacity - 1;
+            this.timestamps = new long[capacity];
+            this.values = new long[capacity];
+            this.kinds = new int[capacity];
+            this.published = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) published.set(i, i - (long) capacity); // nothing published yet
+        }
+
+        public void publish(EventKind kind, long value) {
+            long seq = head.getAndIncrement();
+            int idx = (int) (seq & mask);
+            published.set(idx, Long.MIN_VALUE); // mark slot as being written
+            VarHandle.storeStoreFence();
+            timestamps[idx] = System.nanoTime();
+            values[idx] = value;
+            kinds[idx] = kind.ordinal();
+            published.set(idx, seq);
+        }
+
+        // Drains up to maxEvents published events; must only be called from one consumer thread at a time
+        public int drain(EventSink sink, int maxEvents) {
+            int delivered = 0;
+            long limit = head.get();
+            while (delivered < maxEvents && tail < limit) {
+                int idx = (int) (tail & mask);
+                long before = published.get(idx);
+                if (before < tail) break; // claimed but not yet published
+                long ts = timestamps[idx];
+                long value = values[idx];
+                int kind = kinds[idx];
+                VarHandle.loadLoadFence();
+                if (before != tail || published.get(idx) != tail) {
+                    // producer lapped us: skip ahead to the oldest slot that can still be intact
+                    long oldest = Math.max(tail + 1, head.get() - mask - 1);
+                    dropped.addAndGet(oldest - tail);
+                    tail = oldest;
+                    continue;
+                }
+                sink.accept(KINDS[kind], ts, value);
+                tail++;
+                delivered++;
+            }
+            return delivered;
+        }
+
+        public long dropped() { return dropped.get(); }
+    }
+
+    // Bundle handed to retry / CircuitBreaker so dashboards can poll latency and drain events
+    public record ResilienceMetrics(LatencyRecorder attemptLatency, EventBuffer events) {
+        public static ResilienceMetrics create() {
+            return new ResilienceMetrics(new LatencyRecorder(5), new EventBuffer(1024));
+        }
+    }
+
     // Simple circuit breaker
     public static class CircuitBreaker {
         private final int failureThreshold;
         private final Duration coolDown;
-        private long openedAt = -1;
+        private static final int RETIRED = -1;
+        private volatile long openedAt = -1;
         private final AtomicInteger recentFailures = new AtomicInteger();
+        private final ResilienceMetrics metrics;
+        private boolean halfOpen;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+        private final AtomicInteger leases = new AtomicInteger(); // registry calls in flight, or RETIRED once swept
 
         public CircuitBreaker(int failureThreshold, Duration coolDown) {
+            this(failureThreshold, coolDown, null);
+        }
+
+        public CircuitBreaker(int failureThreshold, Duration coolDown, ResilienceMetrics metrics) {
             this.failureThreshold = failureThreshold;
             this.coolDown = coolDown;
+            this.metrics = metrics;
         }
 
         public synchronized <T> T execute(Supplier<T> action) {
             long now = System.currentTimeMillis();
+            lastUsedAt = now;
             if (isOpen(now)) {
+                if (metrics != null) metrics.events().publish(EventKind.REJECTED, recentFailures.get());
                 throw new IllegalStateException("Circuit open");
             }
+            long start = System.nanoTime();
             try {
                 T result = action.get();
+                if (metrics != null) {
+                    metrics.attemptLatency().record(System.nanoTime() - start);
+                    if (halfOpen) metrics.events().publish(EventKind.CIRCUIT_CLOSED, 0);
+                }
+                halfOpen = false;
                 recentFailures.set(0);
                 return result;
             } catch (Exception ex) {
+                if (metrics != null) metrics.attemptLatency().record(System.nanoTime() - start);
+                boolean trialFailed = halfOpen; // a failed half-open trial re-opens right away
+                halfOpen = false;
                 int fails = recentFailures.incrementAndGet();
-                if (fails >= failureThreshold) {
+                if (trialFailed || fails >= failureThreshold) {
                     openedAt = now;
-                    System.out.println("Circuit opened after " + fails + " failures");
+                    if (metrics != null) metrics.events().publish(EventKind.CIRCUIT_OPENED, fails);
+                    else if (trialFailed) System.out.println("Circuit re-opened: half-open trial failed");
+                    else System.out.println("Circuit opened after " + fails + " failures");
                 }
                 throw ex;
             }
@@ -71,10 +356,302 @@ public class Solution {
                 // Half-open: reset and allow a trial
                 openedAt = -1;
                 recentFailures.set(0);
+                halfOpen = true;
+                if (metrics != null) metrics.events().publish(EventKind.CIRCUIT_HALF_OPEN, elapsed);
+                return false;
+            }
+            return true;
+        }
+
+        // Idle, not open and without leases: safe for a registry to drop without losing a tripped state. Never
+        // takes the execute lock: CAS to RETIRED, then re-read lastUsedAt. A touch() racing the CAS either sees
+        // RETIRED or has its write seen here, in which case the breaker is handed back instead of dropped.
+        private boolean retireIfIdle(long cutoff) {
+            if (lastUsedAt >= cutoff || openedAt >= 0 || !leases.compareAndSet(0, RETIRED)) return false;
+            if (lastUsedAt >= cutoff) {
+                leases.set(0);
                 return false;
             }
             return true;
         }
+
+        // Registry hand-out: refreshes lastUsedAt so a sweep leaves it alone; false while it is retired
+        private boolean touch() {
+            lastUsedAt = System.currentTimeMillis();
+            return leases.get() != RETIRED;
+        }
+
+        // Pins the breaker for one registry call so a sweep can't retire it mid-call
+        private boolean acquire() {
+            for (int n = leases.get(); n != RETIRED; n = leases.get()) {
+                if (leases.compareAndSet(n, n + 1)) return true;
+            }
+            return false;
+        }
+
+        private void release() {
+            lastUsedAt = System.currentTimeMillis();
+            leases.decrementAndGet();
+        }
+    }
+
+    // Shared settings for every breaker created by a registry
+    public record BreakerConfig(int failureThreshold, Duration coolDown, ResilienceMetrics metrics) {}
+
+    // Per-key breakers: lock-free get on the hot path, lazy creation via computeIfAbsent, and idle closed
+    // breakers swept once the registry grows past maxEntries (or on demand), so memory tracks active keys only.
+    // Automatic sweeps are rate-limited (at most every idleTimeout/4, unless the map doubled since the last one),
+    // so a registry full of active keys doesn't rescan on every new key.
+    public static class CircuitBreakerRegistry<K> {
+        private final BreakerConfig config;
+        private final int maxEntries;
+        private final Duration idleTimeout;
+        private final ConcurrentHashMap<K, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+        private final AtomicLong nextSweepAt = new AtomicLong();
+        private volatile int sweepSizeMark;
+
+        public CircuitBreakerRegistry(BreakerConfig config, int maxEntries, Duration idleTimeout) {
+            if (maxEntries < 1) throw new IllegalArgumentException("maxEntries must be >= 1");
+            this.config = config;
+            this.maxEntries = maxEntries;
+            this.idleTimeout = idleTimeout;
+            this.sweepSizeMark = maxEntries;
+        }
+
+        // Lock-free: never waits on a breaker's execute lock. The returned breaker counts as used now, so sweeps
+        // skip it for idleTimeout; prefer execute(key, ...), which pins it for the whole call
+        public CircuitBreaker forKey(K key) {
+            while (true) {
+                CircuitBreaker breaker = breakers.get(key);
+                if (breaker == null) {
+                    breaker = breakers.computeIfAbsent(key,
+                            k -> new CircuitBreaker(config.failureThreshold(), config.coolDown(), config.metrics()));
+                    maybeSweep();
+                }
+                if (breaker.touch()) return breaker;
+                Thread.onSpinWait(); // a sweep is between retiring it and removing (or handing it back)
+            }
+        }
+
+        public <T> T execute(K key, Supplier<T> action) {
+            while (true) {
+                CircuitBreaker breaker = forKey(key);
+                if (!breaker.acquire()) continue; // retired between lookup and use: look up again
+                try {
+                    return breaker.execute(action);
+                } finally {
+                    breaker.release();
+                }
+            }
+        }
+
+        private void maybeSweep() {
+            int size = breakers.size();
+            if (size <= maxEntries) return;
+            long now = System.currentTimeMillis();
+            long due = nextSweepAt.get();
+            if (now < due && size < 2 * sweepSizeMark) return;
+            if (!nextSweepAt.compareAndSet(due, now + Math.max(1, idleTimeout.toMillis() / 4))) return; // another thread sweeps
+            evictIdle();
+            sweepSizeMark = Math.max(maxEntries, breakers.size());
+        }
+
+        // Removes breakers that are closed and unused for idleTimeout; returns how many were dropped
+        public int evictIdle() {
+            long cutoff = System.currentTimeMillis() - idleTimeout.toMillis();
+            int removed = 0;
+            for (Map.Entry<K, CircuitBreaker> e : breakers.entrySet()) {
+                if (e.getValue().retireIfIdle(cutoff) && breakers.remove(e.getKey(), e.getValue())) removed++;
+            }
+            return removed;
+        }
+
+        public int size() { return breakers.size(); }
+    }
+
+    // Value served by StaleWhileErrorCache; stale=true means the live call was rejected or failed (cause says why)
+    public record StaleResult<V>(V value, boolean stale, long ageMillis, Exception cause) {}
+
+    // Keeps the last known-good value per key in a bounded LRU map. While the breaker is open or the call
+    // fails, the cached value is served flagged as stale instead of failing every caller; an open breaker
+    // short-circuits before the backend is touched, so the recovering service only sees half-open trials.
+    public static class StaleWhileErrorCache<K, V> {
+        private record Entry<V>(V value, long storedAtMillis) {}
+
+        private final CircuitBreaker breaker;
+        private final Duration maxStaleness;
+        private final Map<K, Entry<V>> lastGood;
+
+        public StaleWhileErrorCache(CircuitBreaker breaker, int maxEntries, Duration maxStaleness) {
+            if (maxEntries < 1) throw new IllegalArgumentException("maxEntries must be >= 1");
+            this.breaker = breaker;
+            this.maxStaleness = maxStaleness;
+            this.lastGood = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                    return size() > maxEntries;
+                }
+            });
+        }
+
+        public StaleResult<V> get(K key, Function<K, V> loader) {
+            try {
+                V value = breaker.execute(() -> loader.apply(key));
+                lastGood.put(key, new Entry<>(value, System.currentTimeMillis()));
+                return new StaleResult<>(value, false, 0, null);
+            } catch (RuntimeException ex) {
+                Entry<V> cached = lastGood.get(key);
+                long age = cached == null ? -1 : System.currentTimeMillis() - cached.storedAtMillis();
+                if (cached == null || age > maxStaleness.toMillis()) throw ex;
+                return new StaleResult<>(cached.value(), true, age, ex);
+            }
+        }
+    }
+
+    public enum Priority { CRITICAL, NORMAL, BACKGROUND }
+
+    // Admission queue in front of guarded calls. At most maxConcurrent calls run; the rest wait in per-priority
+    // FIFO queues (higher classes dequeue first). Waiters are shed with the CoDel control law: once queueing
+    // delay (sojourn time) has stayed above target for a full interval, waiters are dropped at intervals that
+    // shrink with 1/sqrt(drops) until the delay falls back below target. maxQueued bounds memory outright.
+    public static class CoDelAdmissionQueue {
+        private enum WaitState { WAITING, ADMITTED, DROPPED }
+
+        private static final class Waiter {
+            final long enqueuedAt = System.nanoTime();
+            final Condition ready;
+            WaitState state = WaitState.WAITING;
+            long sojournNanos;
+            Waiter(Condition ready) { this.ready = ready; }
+        }
+
+        private final int maxConcurrent;
+        private final int maxQueued;
+        private final long targetNanos;
+        private final long intervalNanos;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<Waiter>[] queues;
+        private int inFlight;
+        private int queued;
+        // CoDel state, guarded by lock
+        private long firstAboveTime;
+        private long dropNext;
+        private int dropCount;
+        private boolean dropping;
+        private long shed;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public CoDelAdmissionQueue(int maxConcurrent, int maxQueued, Duration target, Duration interval) {
+            if (maxConcurrent < 1) throw new IllegalArgumentException("maxConcurrent must be >= 1");
+            if (maxQueued < 0) throw new IllegalArgumentException("maxQueued must be >= 0");
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueued = maxQueued;
+            this.targetNanos = target.toNanos();
+            this.intervalNanos = interval.toNanos();
+            this.queues = new ArrayDeque[Priority.values().length];
+            for (int i = 0; i < queues.length; i++) queues[i] = new ArrayDeque<>();
+        }
+
+        public <T> T execute(Priority priority, Supplier<T> action) {
+            admit(priority);
+            try {
+                return action.get();
+            } finally {
+                release();
+            }
+        }
+
+        private void admit(Priority priority) {
+            lock.lock();
+            try {
+                if (inFlight < maxConcurrent && queued == 0) {
+                    inFlight++;
+                    return;
+                }
+                if (queued >= maxQueued) {
+                    shed++;
+                    throw new IllegalStateException("Load shed: admission queue full");
+                }
+                Waiter w = new Waiter(lock.newCondition());
+                queues[priority.ordinal()].addLast(w);
+                queued++;
+                while (w.state == WaitState.WAITING) w.ready.awaitUninterruptibly();
+                if (w.state == WaitState.DROPPED) {
+                    throw new IllegalStateException("Load shed: queued " + w.sojournNanos / 1_000_000 + "ms");
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void release() {
+            lock.lock();
+            try {
+                inFlight--;
+                Waiter next;
+                while (inFlight < maxConcurrent && (next = poll()) != null) {
+                    long now = System.nanoTime();
+                    next.sojournNanos = now - next.enqueuedAt;
+                    next.state = shouldDrop(next.sojournNanos, now) ? WaitState.DROPPED : WaitState.ADMITTED;
+                    if (next.state == WaitState.ADMITTED) inFlight++;
+                    else shed++;
+                    next.ready.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Waiter poll() {
+            for (ArrayDeque<Waiter> q : queues) {
+                Waiter w = q.pollFirst();
+                if (w != null) {
+                    queued--;
+                    return w;
+                }
+            }
+            return null;
+        }
+
+        private boolean shouldDrop(long sojourn, long now) {
+            boolean okToDrop;
+            if (sojourn < targetNanos || queued == 0) {
+                firstAboveTime = 0;
+                okToDrop = false;
+            } else if (firstAboveTime == 0) {
+                firstAboveTime = now + intervalNanos;
+                okToDrop = false;
+            } else {
+                okToDrop = now >= firstAboveTime;
+            }
+            if (dropping) {
+                if (!okToDrop) {
+                    dropping = false;
+                } else if (now >= dropNext) {
+                    dropCount++;
+                    dropNext = controlLaw(dropNext);
+                    return true;
+                }
+                return false;
+            }
+            if (okToDrop) {
+                dropping = true;
+                // resume near the previous drop rate if we were dropping recently
+                dropCount = dropCount > 2 && now - dropNext < 16 * intervalNanos ? dropCount - 2 : 1;
+                dropNext = controlLaw(now);
+                return true;
+            }
+            return false;
+        }
+
+        private long controlLaw(long from) {
+            return from + (long) (intervalNanos / Math.sqrt(dropCount));
+        }
+
+        public long shedCount() {
+            lock.lock();
+            try { return shed; } finally { lock.unlock(); }
+        }
     }
 
     // Unreliable service mock
@@ -122,6 +699,83 @@ public class Solution {
         Supplier<String> guarded = () -> cb2.execute(() -> flaky2.get());
         RetryResult<String> res2 = retry(guarded, 6, expBackoff, retryOnRuntime, jitter);
         System.out.println("Retry+CB result: " + res2);
+
+        // Demo 4: same composition reporting to metrics; a consumer drains events without blocking callers.
+        // Both layers share one event stream but keep their own latency recorder, so no attempt counts twice.
+        ResilienceMetrics metrics = ResilienceMetrics.create();
+        ResilienceMetrics breakerMetrics = new ResilienceMetrics(new LatencyRecorder(5), metrics.events());
+        CircuitBreaker cb3 = new CircuitBreaker(3, Duration.ofMillis(200), breakerMetrics);
+        Supplier<String> flaky3 = flakyService(4, "Measured OK");
+        RetryResult<String> res3 = retry(() -> cb3.execute(flaky3), 6, expBackoff, retryOnRuntime, jitter, metrics);
+        System.out.println("Retry+CB with metrics result: " + res3);
+        metrics.events().drain((kind, ts, value) -> System.out.println("  event " + kind + " value=" + value), 100);
+        System.out.println("  attempt latency (retry): " + metrics.attemptLatency().snapshot());
+        System.out.println("  backend call latency (breaker): " + breakerMetrics.attemptLatency().snapshot());
+
+        // Demo 5: batch retry re-sends only the items that failed, coalesced into full batches
+        List<Integer> orderIds = IntStream.rangeClosed(1, 20).boxed().toList();
+        Set<Integer> seenOnce = ConcurrentHashMap.newKeySet();
+        Function<List<Integer>, List<ItemOutcome<String>>> bulkEndpoint = batch -> batch.stream()
+                .map(id -> id == 13 ? ItemOutcome.<String>failed(new IllegalArgumentException("bad order " + id))
+                        : id % 3 == 0 && seenOnce.add(id) ? ItemOutcome.<String>retryable(new RuntimeException("throttled " + id))
+                        : ItemOutcome.ok("ack-" + id))
+                .toList();
+        BatchRetryResult<String> batchRes = retryBatch(orderIds, bulkEndpoint, 8, 3, expBackoff, retryOnRuntime, jitter);
+        System.out.println("Batch retry -> ok=" + batchRes.succeeded() + "/" + orderIds.size()
+                + ", rounds=" + batchRes.rounds() + ", bulkCalls=" + batchRes.bulkCalls() + ", itemsSent=" + batchRes.itemsSent());
+        ResilienceMetrics batchMetrics = new ResilienceMetrics(new LatencyRecorder(5), metrics.events());
+        seenOnce.clear();
+        retryBatch(orderIds, bulkEndpoint, 8, 3, expBackoff, retryOnRuntime, jitter, batchMetrics);
+        batchMetrics.events().drain((kind, ts, value) -> System.out.println("  batch event " + kind + " value=" + value), 100);
+        System.out.println("  bulk call latency: " + batchMetrics.attemptLatency().snapshot());
+
+        // Demo 6: stale-while-error fallback keeps serving the last good price during an outage
+        AtomicInteger priceCalls = new AtomicInteger();
+        Function<String, Integer> priceService = sku -> {
+            if (priceCalls.incrementAndGet() > 1) throw new RuntimeException("pricing down");
+            return 42;
+        };
+        StaleWhileErrorCache<String, Integer> prices =
+                new StaleWhileErrorCache<>(new CircuitBreaker(2, Duration.ofSeconds(5)), 1_000, Duration.ofMinutes(5));
+        for (int i = 1; i <= 4; i++) {
+            StaleResult<Integer> price = prices.get("sku-1", priceService);
+            System.out.println("Price call " + i + " -> " + price.value() + (price.stale() ? " (stale: " + price.cause().getMessage() + ")" : ""));
+        }
+        System.out.println("Backend calls during outage: " + priceCalls.get());
+
+        // Demo 7: per-endpoint breakers from a registry; a failing endpoint does not trip the healthy ones
+        CircuitBreakerRegistry<String> registry = new CircuitBreakerRegistry<>(
+                new BreakerConfig(2, Duration.ofSeconds(1), null), 100, Duration.ZERO);
+        for (int i = 1; i <= 3; i++) {
+            try { registry.execute("/orders", alwaysFail); } catch (Exception ex) { System.out.println("/orders call " + i + " -> " + ex.getMessage()); }
+            System.out.println("/users call " + i + " -> " + registry.execute("/users", () -> "ok"));
+        }
+        try { Thread.sleep(5); } catch (InterruptedException ignored) {}
+        System.out.println("Registry size=" + registry.size() + ", evicted idle=" + registry.evictIdle() + ", remaining=" + registry.size());
+
+        // Demo 8: CoDel admission in front of a slow backend; critical calls skip ahead, backlog gets shed
+        CoDelAdmissionQueue admission = new CoDelAdmissionQueue(2, 64, Duration.ofMillis(5), Duration.ofMillis(40));
+        CircuitBreaker slowCb = new CircuitBreaker(5, Duration.ofSeconds(1));
+        Supplier<String> slowBackend = () -> { try { Thread.sleep(20); } catch (InterruptedException ignored) {} return "done"; };
+        int callers = 40;
+        AtomicInteger served = new AtomicInteger(), criticalServed = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(callers);
+        for (int i = 0; i < callers; i++) {
+            Priority priority = i % 10 == 0 ? Priority.CRITICAL : Priority.NORMAL;
+            new Thread(() -> {
+                try {
+                    admission.execute(priority, () -> slowCb.execute(slowBackend));
+                    served.incrementAndGet();
+                    if (priority == Priority.CRITICAL) criticalServed.incrementAndGet();
+                } catch (IllegalStateException ignored) {
+                    // shed
+                } finally {
+                    finished.countDown();
+                }
+            }).start();
+        }
+        try { finished.await(); } catch (InterruptedException ignored) {}
+        System.out.println("CoDel admission -> served=" + served.get() + " (critical " + criticalServed.get() + "/4), shed=" + admission.shedCount());
     }
 }
 
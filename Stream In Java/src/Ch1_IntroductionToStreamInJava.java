@@ -96,6 +96,170 @@ public class Ch1_IntroductionToStreamInJava {
         System.out.println("[7] Parallel sum 1..10: " + sum + " (use only for suitable workloads)");
     }
 
+    // Example 8: Approximate distinct count (HyperLogLog++) instead of distinct().count()
+    // distinct() keeps every unique element in a HashSet; an HLL keeps 2^p one-byte registers (p=12 -> 4 KB,
+    // ~1.6% std error). Small inputs stay in a sparse hash set at precision 25 (near exact) until it would
+    // outgrow the dense registers; sketches built on parallel chunks merge by register-wise max.
+    static final class HyperLogLog {
+        private static final int SPARSE_P = 25;
+        private final int p;
+        private final int m;
+        private byte[] registers;            // null while sparse
+        private int[] sparse = new int[16];  // open addressing, one entry per 25-bit index: idx << 6 | rho (0 = empty)
+        private int sparseSize;
+
+        HyperLogLog(int precision) {
+            if (precision < 4 || precision > 18) throw new IllegalArgumentException("precision must be in [4, 18]");
+            this.p = precision;
+            this.m = 1 << precision;
+        }
+
+        // 64-bit hash: FNV-style over chars for text, otherwise a murmur3 finalizer over hashCode()
+        static long hash64(Object o) {
+            long h;
+            if (o instanceof CharSequence cs) {
+                h = 0xCBF29CE484222325L;
+                for (int i = 0; i < cs.length(); i++) h = (h ^ cs.charAt(i)) * 0x100000001B3L;
+            } else {
+                h = Objects.hashCode(o);
+            }
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+            h *= 0xC4CEB9FE1A85EC53L;
+            return h ^ (h >>> 33);
+        }
+
+        void offerHash(long hash) {
+            if (registers != null) {
+                int idx = (int) (hash >>> (64 - p));
+                int rho = Long.numberOfLeadingZeros((hash << p) | (1L << (p - 1))) + 1;
+                if (rho > registers[idx]) registers[idx] = (byte) rho;
+                return;
+            }
+            int idx = (int) (hash >>> (64 - SPARSE_P));
+            int rho = Long.numberOfLeadingZeros((hash << SPARSE_P) | (1L << (SPARSE_P - 1))) + 1;
+            offerSparse(idx << 6 | rho);
+        }
+
+        // Repeats of a known token cost one probe. The set is promoted at m/8 entries, while its table
+        // (load <= 1/2, 4-byte slots) is still no bigger than the m dense registers.
+        private void offerSparse(int e) {
+            if (registers != null) {
+                applySparse(e);
+                return;
+            }
+            int idx25 = e >>> 6;
+            int mask = sparse.length - 1;
+            int h = idx25 * 0x9E3779B9;
+            for (int i = (h ^ (h >>> 16)) & mask; ; i = (i + 1) & mask) {
+                int cur = sparse[i];
+                if (cur == 0) {
+                    sparse[i] = e;
+                    if (++sparseSize > m / 8) toDense();
+                    else if (sparseSize * 2 > sparse.length) resizeSparse();
+                    return;
+                }
+                if ((cur >>> 6) == idx25) {
+                    if (e > cur) sparse[i] = e; // same index, larger rho
+                    return;
+                }
+            }
+        }
+
+        private void resizeSparse() {
+            int[] old = sparse;
+            sparse = new int[old.length * 2];
+            int mask = sparse.length - 1;
+            for (int e : old) {
+                if (e == 0) continue;
+                int h = (e >>> 6) * 0x9E3779B9;
+                int i = (h ^ (h >>> 16)) & mask;
+                while (sparse[i] != 0) i = (i + 1) & mask;
+                sparse[i] = e;
+            }
+        }
+
+        private void toDense() {
+            if (registers != null) return;
+            registers = new byte[m];
+            for (int e : sparse) if (e != 0) applySparse(e);
+            sparse = null;
+        }
+
+        // A 25-bit index carries (25 - p) extra bits of the dense rho; only fall back to the stored rho if they're zero
+        private void applySparse(int e) {
+            int shift = SPARSE_P - p;
+            int idx25 = e >>> 6;
+            int low = idx25 & ((1 << shift) - 1);
+            int rho = low != 0 ? Integer.numberOfLeadingZeros(low) - (32 - shift) + 1 : shift + (e & 63);
+            int idx = idx25 >>> shift;
+            if (rho > registers[idx]) registers[idx] = (byte) rho;
+        }
+
+        HyperLogLog merge(HyperLogLog other) {
+            if (other.p != p) throw new IllegalArgumentException("precision mismatch: " + p + " vs " + other.p);
+            if (other.registers == null) {
+                for (int e : other.sparse) if (e != 0) offerSparse(e); // may promote this midway
+                return this;
+            }
+            toDense();
+            for (int i = 0; i < m; i++) if (other.registers[i] > registers[i]) registers[i] = other.registers[i];
+            return this;
+        }
+
+        long estimate() {
+            if (registers == null) {
+                double mPrime = 1 << SPARSE_P;
+                return Math.round(mPrime * Math.log(mPrime / (mPrime - sparseSize)));
+            }
+            double sum = 0;
+            int zeros = 0;
+            for (byte r : registers) {
+                sum += 1.0 / (1L << r);
+                if (r == 0) zeros++;
+            }
+            double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+            double raw = alpha * m * m / sum;
+            if (raw <= 2.5 * m && zeros > 0) return Math.round(m * Math.log((double) m / zeros));
+            return Math.round(raw);
+        }
+
+        boolean isSparse() { return registers == null; }
+    }
+
+    public static <T> Collector<T, HyperLogLog, HyperLogLog> toHyperLogLog(int precision) {
+        return Collector.of(
+                () -> new HyperLogLog(precision),
+                (hll, t) -> hll.offerHash(HyperLogLog.hash64(t)),
+                HyperLogLog::merge,
+                Collector.Characteristics.UNORDERED
+        );
+    }
+
+    public static <T> Collector<T, ?, Long> approxDistinctCount(int precision) {
+        return Collectors.collectingAndThen(toHyperLogLog(precision), HyperLogLog::estimate);
+    }
+
+    public static void approximateDistinct() {
+        List<List<String>> phrases = List.of(
+                List.of("functional", "streams"),
+                List.of("java", "streams"),
+                List.of("java", "functional")
+        );
+        HyperLogLog small = phrases.stream()
+                .flatMap(List::stream)
+                .map(String::toLowerCase)
+                .collect(toHyperLogLog(12));
+        long exact = IntStream.range(0, 2_000_000).mapToObj(i -> "tok" + (i % 250_000)).distinct().count();
+        long approx = IntStream.range(0, 2_000_000)
+                .parallel()
+                .mapToObj(i -> "tok" + (i % 250_000))
+                .collect(approxDistinctCount(12));
+        System.out.println("[8] Vocab approx distinct: " + small.estimate() + " (sparse=" + small.isSparse() + ")"
+                + "; tokens exact " + exact + " vs HLL(p=12, 4 KB) " + approx);
+    }
+
     public static void main(String[] args) {
         basicPipeline();
         reductionAndStats();
@@ -104,5 +268,6 @@ public class Ch1_IntroductionToStreamInJava {
         primitiveStreams();
         shortCircuiting();
         parallelDemo();
+        approximateDistinct();
     }
 }
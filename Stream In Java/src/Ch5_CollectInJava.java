@@ -12,6 +12,7 @@
 
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
 import java.util.stream.*;
 
 public class Ch5_CollectInJava {
@@ -103,6 +104,257 @@ public class Ch5_CollectInJava {
         System.out.println("[8] Grouped by initial (Function-based): " + byInitial);
     }
 
+    // Example 9: Hash-aggregation group-by (SQL-engine style)
+    // groupingBy(..., counting()) allocates a HashMap node per group plus a boxed Long per update. Here keys live
+    // in an open-addressing table and count/sum/min/max in parallel primitive arrays indexed by slot; partial
+    // tables from parallel leaves merge slot by slot, and result objects are only built once per group.
+    public record GroupStats(long count, long sum, long min, long max) {
+        public double average() { return count == 0 ? 0 : (double) sum / count; }
+    }
+
+    static final class HashAggregation<K> {
+        private Object[] keys = new Object[16];
+        private int[] hashes = new int[16];
+        private long[] counts = new long[16];
+        private long[] sums = new long[16];
+        private long[] mins = new long[16];
+        private long[] maxs = new long[16];
+        private int size;
+
+        void add(K key, long value) {
+            Objects.requireNonNull(key, "element cannot be mapped to a null key");
+            int h = spread(key.hashCode());
+            int slot = slotFor(key, h);
+            if (keys[slot] == null) {
+                keys[slot] = key;
+                hashes[slot] = h;
+                mins[slot] = Long.MAX_VALUE;
+                maxs[slot] = Long.MIN_VALUE;
+                if (++size * 2 > keys.length) {
+                    resize();
+                    slot = slotFor(key, h);
+                }
+            }
+            counts[slot]++;
+            sums[slot] += value;
+            mins[slot] = Math.min(mins[slot], value);
+            maxs[slot] = Math.max(maxs[slot], value);
+        }
+
+        @SuppressWarnings("unchecked")
+        HashAggregation<K> merge(HashAggregation<K> other) {
+            for (int i = 0; i < other.keys.length; i++) {
+                if (other.keys[i] == null) continue;
+                int slot = slotFor(other.keys[i], other.hashes[i]);
+                if (keys[slot] == null) {
+                    keys[slot] = other.keys[i];
+                    hashes[slot] = other.hashes[i];
+                    counts[slot] = other.counts[i];
+                    sums[slot] = other.sums[i];
+                    mins[slot] = other.mins[i];
+                    maxs[slot] = other.maxs[i];
+                    if (++size * 2 > keys.length) resize();
+                } else {
+                    counts[slot] += other.counts[i];
+                    sums[slot] += other.sums[i];
+                    mins[slot] = Math.min(mins[slot], other.mins[i]);
+                    maxs[slot] = Math.max(maxs[slot], other.maxs[i]);
+                }
+            }
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<K, GroupStats> toMap() {
+            Map<K, GroupStats> out = new HashMap<>(size * 2);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) out.put((K) keys[i], new GroupStats(counts[i], sums[i], mins[i], maxs[i]));
+            }
+            return Collections.unmodifiableMap(out);
+        }
+
+        private int slotFor(Object key, int h) {
+            int mask = keys.length - 1;
+            int slot = h & mask;
+            while (keys[slot] != null && (hashes[slot] != h || !keys[slot].equals(key))) slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        private void resize() {
+            Object[] oldKeys = keys;
+            int[] oldHashes = hashes;
+            long[] oldCounts = counts, oldSums = sums, oldMins = mins, oldMaxs = maxs;
+            int cap = oldKeys.length * 2;
+            keys = new Object[cap];
+            hashes = new int[cap];
+            counts = new long[cap];
+            sums = new long[cap];
+            mins = new long[cap];
+            maxs = new long[cap];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == null) continue;
+                int slot = oldHashes[i] & (cap - 1);
+                while (keys[slot] != null) slot = (slot + 1) & (cap - 1);
+                keys[slot] = oldKeys[i];
+                hashes[slot] = oldHashes[i];
+                counts[slot] = oldCounts[i];
+                sums[slot] = oldSums[i];
+                mins[slot] = oldMins[i];
+                maxs[slot] = oldMaxs[i];
+            }
+        }
+
+        private static int spread(int h) {
+            h *= 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    public static <T, K> Collector<T, ?, Map<K, GroupStats>> groupingByAggregate(Function<? super T, ? extends K> keyFn,
+                                                                              ToLongFunction<? super T> valueFn) {
+        return Collector.of(
+                HashAggregation<K>::new,
+                (table, t) -> table.add(keyFn.apply(t), valueFn.applyAsLong(t)),
+                HashAggregation::merge,
+                HashAggregation::toMap,
+                Collector.Characteristics.UNORDERED
+        );
+    }
+
+    public static void hashAggregationGroupBy() {
+        record Person(String name, String city, int age) {}
+        List<Person> people = List.of(
+                new Person("Alice", "NY", 30), new Person("Bob", "SF", 25),
+                new Person("Cara", "NY", 41), new Person("Dan", "SF", 35), new Person("Eve", "NY", 28)
+        );
+        Map<String, GroupStats> ageByCity = people.parallelStream()
+                .collect(groupingByAggregate(Person::city, Person::age));
+        System.out.println("[9] Hash-aggregated age stats by city: " + ageByCity);
+        Map<Integer, GroupStats> byBucket = IntStream.range(0, 1_000_000).boxed().parallel()
+                .collect(groupingByAggregate(n -> n % 7, n -> n));
+        System.out.println("[9] 1M values in 7 groups -> group 0 count=" + byBucket.get(0).count() + ", max=" + byBucket.get(0).max());
+    }
+
+    // Example 10: Object-to-int counting map (replaces toMap(identity(), w -> 1, Integer::sum))
+    // Keys and int counts sit in dense arrays in first-seen order, with an open-addressing int[] index over them,
+    // so a repeat word is one probe and counts[i]++ - no boxed Integer, no merge lambda. The finished map is a
+    // read-only view over those arrays. Order is kept for free; passing insertionOrder=false only adds UNORDERED.
+    public static final class CountingMap<K> extends AbstractMap<K, Integer> {
+        private Object[] keys = new Object[8];
+        private int[] counts = new int[8];
+        private int[] index = new int[16]; // slot -> dense position + 1, 0 = empty
+        private int size;
+
+        void increment(K key, int delta) {
+            Objects.requireNonNull(key);
+            int mask = index.length - 1;
+            int slot = spread(key.hashCode()) & mask;
+            for (int pos; (pos = index[slot]) != 0; slot = (slot + 1) & mask) {
+                if (keys[pos - 1].equals(key)) {
+                    counts[pos - 1] += delta;
+                    return;
+                }
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            keys[size] = key;
+            counts[size] = delta;
+            index[slot] = ++size;
+            if (size * 2 > index.length) reindex();
+        }
+
+        @SuppressWarnings("unchecked")
+        CountingMap<K> merge(CountingMap<K> other) {
+            for (int i = 0; i < other.size; i++) increment((K) other.keys[i], other.counts[i]);
+            return this;
+        }
+
+        public int getInt(Object key) {
+            if (key == null) return 0;
+            int mask = index.length - 1;
+            for (int slot = spread(key.hashCode()) & mask, pos; (pos = index[slot]) != 0; slot = (slot + 1) & mask) {
+                if (keys[pos - 1].equals(key)) return counts[pos - 1];
+            }
+            return 0;
+        }
+
+        @Override
+        public Integer get(Object key) {
+            int c = getInt(key);
+            return c == 0 ? null : c;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return getInt(key) != 0;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<Entry<K, Integer>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() { return size; }
+
+                @Override
+                public Iterator<Entry<K, Integer>> iterator() {
+                    return new Iterator<>() {
+                        private int i;
+
+                        @Override
+                        public boolean hasNext() { return i < size; }
+
+                        @SuppressWarnings("unchecked")
+                        @Override
+                        public Entry<K, Integer> next() {
+                            if (i >= size) throw new NoSuchElementException();
+                            Entry<K, Integer> e = Map.entry((K) keys[i], counts[i]);
+                            i++;
+                            return e;
+                        }
+                    };
+                }
+            };
+        }
+
+        private void reindex() {
+            index = new int[index.length * 2];
+            int mask = index.length - 1;
+            for (int pos = 0; pos < size; pos++) {
+                int slot = spread(keys[pos].hashCode()) & mask;
+                while (index[slot] != 0) slot = (slot + 1) & mask;
+                index[slot] = pos + 1;
+            }
+        }
+
+        private static int spread(int h) {
+            h *= 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    public static <T> Collector<T, ?, CountingMap<T>> countingMap(boolean insertionOrder) {
+        Collector.Characteristics[] characteristics = insertionOrder
+                ? new Collector.Characteristics[] { Collector.Characteristics.IDENTITY_FINISH }
+                : new Collector.Characteristics[] { Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED };
+        return Collector.of(CountingMap<T>::new, (m, t) -> m.increment(t, 1), CountingMap::merge, characteristics);
+    }
+
+    public static void countingMapCollector() {
+        List<String> words = List.of("java", "stream", "java", "map");
+        CountingMap<String> freq = words.stream().collect(countingMap(true));
+        Map<String, Integer> viaToMap = words.stream()
+                .collect(Collectors.toMap(Function.identity(), w -> 1, Integer::sum, LinkedHashMap::new));
+        System.out.println("[10] Counting map (insertion order): " + freq + ", java=" + freq.getInt("java")
+                + ", same as toMap: " + freq.equals(viaToMap));
+    }
+
     public static void main(String[] args) {
         basicCollectors();
         toMapWithMerge();
@@ -112,6 +364,8 @@ public class Ch5_CollectInJava {
         customCollectorAverage();
         functionalPredictable();
         functionsInCollect();
+        hashAggregationGroupBy();
+        countingMapCollector();
     }
 }
 
@@ -10,6 +10,8 @@
 // - Caution: avoid shared mutable state, avoid blocking ops on common pool, mind thread count via system property or custom pool.
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Function;
 import java.util.stream.*;
 
@@ -41,6 +43,7 @@ public class Ch5_ParalletStreamsInJava {
     // Example 3: Parallel reduce with proper combiner (sum of squares)
     public static void parallelReduceSumSquares() {
         int result = IntStream.rangeClosed(1, 10)
+                .boxed()
                 .parallel()
                 .reduce(0, (acc, n) -> acc + n * n, Integer::sum);
         System.out.println("[3] Parallel sum of squares 1..10: " + result);
@@ -90,6 +93,107 @@ public class Ch5_ParalletStreamsInJava {
         System.out.println("[7] Parallel with blocking took ~" + duration + " ms (not ideal for I/O-bound)");
     }
 
+    // Example 8: Per-thread counting tables (alternative to toConcurrentMap(..., Long::sum))
+    // With skewed keys every thread hammers the same ConcurrentHashMap bins. Here each worker thread counts into
+    // its own plain HashMap. When that table reaches LOCAL_LIMIT keys, only its colder half (lowest counts) is
+    // spilled into a shared ConcurrentHashMap; the hot keys stay local and keep counting without touching shared
+    // state until the finisher spills everything once at the end. So shared writes are rare cold-key merges.
+    // Tables are keyed by Thread inside the counter (not a ThreadLocal), so nothing stays behind on pool threads.
+    static final class ConcurrentCounter<K> {
+        private static final int LOCAL_LIMIT = 4096;
+        private final ConcurrentHashMap<K, Long> shared = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<Thread, Map<K, long[]>> locals = new ConcurrentHashMap<>();
+
+        void add(K key) {
+            Thread self = Thread.currentThread();
+            Map<K, long[]> table = locals.get(self);
+            if (table == null) locals.put(self, table = new HashMap<>());
+            long[] cell = table.get(key);
+            if (cell == null) {
+                if (table.size() >= LOCAL_LIMIT) spillCold(table);
+                table.put(key, cell = new long[1]);
+            }
+            cell[0]++;
+        }
+
+        // Frees half the table by spilling the entries below the median count (ties broken by iteration order),
+        // so a spill costs O(n log n) once per LOCAL_LIMIT / 2 new keys
+        private void spillCold(Map<K, long[]> table) {
+            long[] counts = new long[table.size()];
+            int i = 0;
+            for (long[] c : table.values()) counts[i++] = c[0];
+            Arrays.sort(counts);
+            long median = counts[counts.length / 2];
+            int toFree = counts.length / 2;
+            int atMedian = toFree - (int) Arrays.stream(counts, 0, toFree).filter(c -> c < median).count();
+            Iterator<Map.Entry<K, long[]>> it = table.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<K, long[]> e = it.next();
+                long c = e.getValue()[0];
+                if (c < median || (c == median && atMedian-- > 0)) {
+                    shared.merge(e.getKey(), c, Long::sum);
+                    it.remove();
+                }
+            }
+        }
+
+        private void spill(Map<K, long[]> table) {
+            table.forEach((k, c) -> shared.merge(k, c[0], Long::sum));
+            table.clear();
+        }
+
+        // Only called once accumulation into this counter has finished, so every thread's table is safe to read
+        private void spillAll() {
+            locals.values().forEach(this::spill);
+            locals.clear();
+        }
+
+        // Needed when the collector runs as a downstream (partitioningBy, teeing, ...): each leaf gets its own counter
+        ConcurrentCounter<K> combine(ConcurrentCounter<K> other) {
+            spillAll();
+            other.spillAll();
+            other.shared.forEach((k, c) -> shared.merge(k, c, Long::sum));
+            return this;
+        }
+
+        Map<K, Long> finish() {
+            spillAll();
+            return Collections.unmodifiableMap(new HashMap<>(shared));
+        }
+    }
+
+    public static <T, K> Collector<T, ?, Map<K, Long>> concurrentCounting(Function<? super T, ? extends K> keyFn) {
+        return Collector.of(
+                ConcurrentCounter<K>::new,
+                (counter, t) -> counter.add(keyFn.apply(t)),
+                ConcurrentCounter::combine,
+                ConcurrentCounter::finish,
+                Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED
+        );
+    }
+
+    public static void perThreadCounting() {
+        Random rnd = new Random(11);
+        List<String> zipfWords = IntStream.range(0, 2_000_000)
+                .mapToObj(i -> "w" + (int) Math.pow(10_000, rnd.nextDouble() * rnd.nextDouble()))
+                .toList();
+        long start = System.nanoTime();
+        Map<String, Long> viaConcurrentMap = zipfWords.parallelStream()
+                .collect(Collectors.toConcurrentMap(Function.identity(), w -> 1L, Long::sum));
+        long concurrentMapMs = (System.nanoTime() - start) / 1_000_000;
+        start = System.nanoTime();
+        Map<String, Long> viaLocalTables = zipfWords.parallelStream().collect(concurrentCounting(Function.identity()));
+        long localTablesMs = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("[8] Zipfian counts equal: " + viaConcurrentMap.equals(viaLocalTables)
+                + " (toConcurrentMap " + concurrentMapMs + " ms, per-thread tables " + localTablesMs + " ms; depends on cores and skew)");
+        // As a downstream collector each partition gets its own counter and the counters are combined
+        Map<Boolean, Map<String, Long>> byLength = zipfWords.parallelStream()
+                .collect(Collectors.partitioningBy(w -> w.length() > 3, concurrentCounting(Function.identity())));
+        Map<String, Long> recombined = new HashMap<>(byLength.get(true));
+        recombined.putAll(byLength.get(false));
+        System.out.println("[8] Partitioned counts equal: " + viaConcurrentMap.equals(recombined));
+    }
+
     public static void main(String[] args) {
         parallelSum();
         orderedVsUnordered();
@@ -98,6 +202,7 @@ public class Ch5_ParalletStreamsInJava {
         functionalExample();
         predictableParallel();
         notForIOBound();
+        perThreadCounting();
     }
 }
 